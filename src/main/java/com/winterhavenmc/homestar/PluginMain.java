@@ -18,9 +18,13 @@
 package com.winterhavenmc.homestar;
 
 import com.winterhavenmc.homestar.commands.CommandDispatcher;
+import com.winterhavenmc.homestar.listeners.BlockEventListener;
 import com.winterhavenmc.homestar.listeners.PlayerEventListener;
 import com.winterhavenmc.homestar.listeners.PlayerInteractEventListener;
+import com.winterhavenmc.homestar.listeners.WarmupEventListener;
+import com.winterhavenmc.homestar.listeners.WorldEventListener;
 import com.winterhavenmc.homestar.teleport.TeleportHandler;
+import com.winterhavenmc.homestar.util.HomeStarSettings;
 import com.winterhavenmc.homestar.util.HomeStarUtility;
 import com.winterhavenmc.homestar.util.MetricsHandler;
 import com.winterhavenmc.library.messagebuilder.MessageBuilder;
@@ -40,6 +44,7 @@ public final class PluginMain extends JavaPlugin
 	public TeleportHandler teleportHandler;
 	public CommandDispatcher commandDispatcher;
 	public HomeStarUtility homeStarUtility;
+	public volatile HomeStarSettings settings;
 
 
 	@Override
@@ -48,6 +53,9 @@ public final class PluginMain extends JavaPlugin
 		// install default configuration file if not already present
 		saveDefaultConfig();
 
+		// create settings snapshot from configuration
+		settings = HomeStarSettings.from(getConfig());
+
 		// instantiate message builder
 		messageBuilder = MessageBuilder.create(this);
 
@@ -60,6 +68,11 @@ public final class PluginMain extends JavaPlugin
 		// instantiate player event listeners
 		new PlayerEventListener(this);
 		new PlayerInteractEventListener(this);
+		new WarmupEventListener(this);
+
+		// instantiate world and block event listeners
+		new WorldEventListener(this);
+		new BlockEventListener(this);
 
 		// instantiate homestar factory
 		homeStarUtility = new HomeStarUtility(this);
@@ -68,4 +81,15 @@ public final class PluginMain extends JavaPlugin
 		new MetricsHandler(this);
 	}
 
+
+	@Override
+	public void onDisable()
+	{
+		// stop teleport scheduler and close persistent cooldowns
+		if (teleportHandler != null)
+		{
+			teleportHandler.shutdown();
+		}
+	}
+
 }
@@ -72,7 +72,7 @@ public final class SimpleAPI
 	 */
 	public static boolean isHomeStar(final ItemStack itemStack)
 	{
-		return plugin.messageBuilder.items().isItem(itemStack);
+		return plugin.homeStarUtility.isHomeStar(itemStack);
 	}
 
 
@@ -248,7 +248,7 @@ public final class SimpleAPI
 	 */
 	public static Optional<ItemStack> getDefaultItem()
 	{
-		return plugin.messageBuilder.items().createItem(ItemKey.of(ITEM_KEY_STRING).isValid().orElseThrow());
+		return Optional.ofNullable(plugin.homeStarUtility.create(1));
 	}
 
 
@@ -55,6 +55,7 @@ public final class CommandDispatcher implements TabExecutor
 		// register subcommands
 		subcommandRegistry.register(new DestroySubcommand(plugin));
 		subcommandRegistry.register(new GiveSubcommand(plugin));
+		subcommandRegistry.register(new HistorySubcommand(plugin));
 		subcommandRegistry.register(new ReloadSubcommand(plugin));
 		subcommandRegistry.register(new StatusSubcommand(plugin));
 		subcommandRegistry.register(new HelpSubcommand(plugin, subcommandRegistry));
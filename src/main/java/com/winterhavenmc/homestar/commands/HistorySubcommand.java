@@ -0,0 +1,252 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.commands;
+
+import com.winterhavenmc.homestar.PluginMain;
+import com.winterhavenmc.homestar.teleport.AuditEntry;
+import com.winterhavenmc.homestar.teleport.AuditPage;
+import com.winterhavenmc.homestar.util.Macro;
+import com.winterhavenmc.homestar.util.MessageId;
+
+import org.bukkit.OfflinePlayer;
+import org.bukkit.World;
+import org.bukkit.command.Command;
+import org.bukkit.command.CommandSender;
+import org.bukkit.entity.Player;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Locale;
+import java.util.Objects;
+import java.util.UUID;
+
+
+final class HistorySubcommand extends AbstractSubcommand
+{
+	private static final DateTimeFormatter TIME_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+
+	private final PluginMain plugin;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to plugin main class instance
+	 */
+	HistorySubcommand(final PluginMain plugin)
+	{
+		this.plugin = Objects.requireNonNull(plugin);
+		this.name = "history";
+		this.permissionNode = "homestar.history";
+		this.usageString = "/homestar history <player> [page]";
+		this.description = MessageId.COMMAND_HELP_HISTORY;
+		this.minArgs = 1;
+		this.maxArgs = 2;
+	}
+
+
+	@Override
+	public List<String> onTabComplete(final CommandSender sender, final Command command,
+	                                  final String alias, final String[] args)
+	{
+		return switch (args.length)
+		{
+			case 2 -> null; // return null for list of matching online players
+			case 3 -> List.of("1", "2", "3"); // return first few pages
+			default -> List.of(); // return empty list
+		};
+	}
+
+
+	@Override
+	public boolean onCommand(final CommandSender sender, final List<String> args)
+	{
+		// if command sender does not have permission to view teleport history, output error message and return true
+		if (!sender.hasPermission(permissionNode))
+		{
+			return plugin.messageBuilder.compose(sender, MessageId.COMMAND_FAIL_HISTORY_PERMISSION).send();
+		}
+
+		// check min arguments
+		if (args.size() < getMinArgs())
+		{
+			plugin.messageBuilder.compose(sender, MessageId.COMMAND_FAIL_ARGS_COUNT_UNDER).send();
+			displayUsage(sender);
+			return true;
+		}
+
+		// check max arguments
+		if (args.size() > getMaxArgs())
+		{
+			plugin.messageBuilder.compose(sender, MessageId.COMMAND_FAIL_ARGS_COUNT_OVER).send();
+			displayUsage(sender);
+			return true;
+		}
+
+		int page = 1;
+
+		if (args.size() > 1)
+		{
+			try
+			{
+				page = Integer.parseInt(args.get(1));
+			}
+			catch (NumberFormatException exception)
+			{
+				return plugin.messageBuilder.compose(sender, MessageId.COMMAND_FAIL_HISTORY_PAGE_INVALID).send();
+			}
+
+			if (page < 1)
+			{
+				return plugin.messageBuilder.compose(sender, MessageId.COMMAND_FAIL_HISTORY_PAGE_INVALID).send();
+			}
+		}
+
+		// match passed player uuid or exact name, then display the page of history
+		queryHistory(sender, matchPlayer(args.getFirst()), page);
+		return true;
+	}
+
+
+	/**
+	 * Read a page of a player's teleport history and display it to the command sender
+	 *
+	 * @param sender       the command sender
+	 * @param targetPlayer the player whose history is displayed, or {@code null} if no player was matched
+	 * @param page         the page number, starting at one
+	 */
+	private void queryHistory(final CommandSender sender, final OfflinePlayer targetPlayer, final int page)
+	{
+		// if no match, send player not found message and return
+		if (targetPlayer == null)
+		{
+			plugin.messageBuilder.compose(sender, MessageId.COMMAND_FAIL_PLAYER_NOT_FOUND).send();
+			return;
+		}
+
+		String targetName = targetPlayer.getName() != null
+				? targetPlayer.getName()
+				: targetPlayer.getUniqueId().toString();
+
+		// audit log is read off the main thread; page is displayed when it has been read
+		plugin.teleportHandler.queryHistory(targetPlayer.getUniqueId(), page, result -> displayPage(sender, targetName, result));
+	}
+
+
+	/**
+	 * Match a uuid string or an exact name to a player who is online or has played on the server.
+	 * Called only from the server main thread.
+	 *
+	 * @param nameOrUid the player name or uuid string
+	 * @return the matching player, or {@code null} if no match was found
+	 */
+	@SuppressWarnings("deprecation")
+	private OfflinePlayer matchPlayer(final String nameOrUid)
+	{
+		try
+		{
+			OfflinePlayer offlinePlayer = plugin.getServer().getOfflinePlayer(UUID.fromString(nameOrUid));
+			if (offlinePlayer.hasPlayedBefore() || offlinePlayer.isOnline())
+			{
+				return offlinePlayer;
+			}
+		}
+		catch (IllegalArgumentException exception)
+		{
+			// not a uuid string; match by name
+		}
+
+		Player onlinePlayer = plugin.getServer().getPlayerExact(nameOrUid);
+		if (onlinePlayer != null)
+		{
+			return onlinePlayer;
+		}
+
+		// look up the one player with this name, instead of listing every player who has played on the server
+		OfflinePlayer offlinePlayer = plugin.getServer().getOfflinePlayer(nameOrUid);
+		return offlinePlayer.hasPlayedBefore() ? offlinePlayer : null;
+	}
+
+
+	/**
+	 * Display a page of teleport history to the command sender
+	 *
+	 * @param sender     the command sender
+	 * @param targetName the name of the player whose history is displayed
+	 * @param result     the page of history
+	 */
+	private void displayPage(final CommandSender sender, final String targetName, final AuditPage result)
+	{
+		// if sender has logged out while the audit log was read, do nothing
+		if (sender instanceof Player player && !player.isOnline())
+		{
+			return;
+		}
+
+		if (result.entries().isEmpty())
+		{
+			plugin.messageBuilder.compose(sender, MessageId.COMMAND_HISTORY_EMPTY)
+					.setMacro(Macro.PLAYER, targetName)
+					.setMacro(Macro.COUNT, result.page())
+					.setMacro(Macro.TOTAL, result.pageCount())
+					.send();
+			return;
+		}
+
+		plugin.messageBuilder.compose(sender, MessageId.COMMAND_HISTORY_HEADER)
+				.setMacro(Macro.PLAYER, targetName)
+				.setMacro(Macro.COUNT, result.page())
+				.setMacro(Macro.TOTAL, result.pageCount())
+				.setMacro(Macro.QUANTITY, result.total())
+				.send();
+
+		for (AuditEntry entry : result.entries())
+		{
+			plugin.messageBuilder.compose(sender, MessageId.COMMAND_HISTORY_ENTRY)
+					.setMacro(Macro.TIME, TIME_FORMAT.format(Instant.ofEpochMilli(entry.timeMillis()).atZone(ZoneId.systemDefault())))
+					.setMacro(Macro.ORIGIN, formatPosition(entry.worldUid(), entry.blockX(), entry.blockY(), entry.blockZ()))
+					.setMacro(Macro.DESTINATION, formatPosition(entry.destinationWorldUid(),
+							entry.destinationX(), entry.destinationY(), entry.destinationZ()))
+					.setMacro(Macro.MATERIAL, entry.item())
+					.setMacro(Macro.DURATION, Duration.ofMillis(entry.warmupTicks() * 50L))
+					.setMacro(Macro.OUTCOME, entry.outcome().name().toLowerCase(Locale.ROOT).replace('_', ' '))
+					.send();
+		}
+	}
+
+
+	/**
+	 * Format a block position for display, using the world name if the world is loaded
+	 *
+	 * @param worldUid the world uuid
+	 * @param x        the block x coordinate
+	 * @param y        the block y coordinate
+	 * @param z        the block z coordinate
+	 * @return the formatted position
+	 */
+	private String formatPosition(final UUID worldUid, final int x, final int y, final int z)
+	{
+		World world = plugin.getServer().getWorld(worldUid);
+		String worldName = world != null ? world.getName() : worldUid.toString();
+		return worldName + " " + x + ", " + y + ", " + z;
+	}
+
+}
@@ -18,6 +18,7 @@
 package com.winterhavenmc.homestar.commands;
 
 import com.winterhavenmc.homestar.PluginMain;
+import com.winterhavenmc.homestar.util.HomeStarSettings;
 import com.winterhavenmc.homestar.util.MessageId;
 
 import org.bukkit.command.CommandSender;
@@ -66,9 +67,30 @@ final class ReloadSubcommand extends AbstractSubcommand
 		// reload main configuration
 		plugin.reloadConfig();
 
+		// replace settings snapshot with reloaded configuration
+		plugin.settings = HomeStarSettings.from(plugin.getConfig());
+
 		// reload messages
 		plugin.messageBuilder.reload();
 
+		// rebuild HomeStar material table from reloaded item definition
+		plugin.homeStarUtility.reload();
+
+		// rebuild world pair index with reloaded explicit mappings
+		plugin.teleportHandler.rebuildWorldPairIndex();
+
+		// reschedule cooldown sweep and open or close persistent cooldown table with reloaded settings
+		plugin.teleportHandler.reloadCooldowns();
+
+		// open or close audit log, and read console usage line from reloaded language file
+		plugin.teleportHandler.reloadUsageLog();
+
+		// clear cached world spawn locations, which may have been changed by reloaded world settings
+		plugin.teleportHandler.clearSpawnLocations();
+
+		// register warmup cancellation listeners again if any player is warming up, with reloaded settings
+		plugin.teleportHandler.refreshWarmupActivity();
+
 		// send reloaded message
 		return plugin.messageBuilder.compose(sender, MessageId.COMMAND_SUCCESS_RELOAD).send();
 	}
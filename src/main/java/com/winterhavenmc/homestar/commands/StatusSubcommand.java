@@ -86,6 +86,14 @@ final class StatusSubcommand extends AbstractSubcommand
 		displayAllowInRecipesSetting(sender);
 		displayLightningSetting(sender);
 		displayEnabledWorlds(sender);
+		displayCooldownSweep(sender);
+		displayChunkTickets(sender);
+		displayAdmission(sender);
+		displaySpawnCache(sender);
+		displayArrivalEffects(sender);
+		displayDenialThrottle(sender);
+		displayUsageLog(sender);
+		displayAuditLog(sender);
 		displayStatusFooter(sender);
 
 		return true;
@@ -260,6 +268,83 @@ final class StatusSubcommand extends AbstractSubcommand
 	}
 
 
+	private void displayCooldownSweep(final CommandSender sender)
+	{
+		plugin.messageBuilder.compose(sender, MessageId.COMMAND_STATUS_COOLDOWN_SWEEP)
+				.setMacro(Macro.COUNT, plugin.teleportHandler.getLastCooldownSweepEvictions())
+				.setMacro(Macro.TOTAL, plugin.teleportHandler.getTotalCooldownSweepEvictions())
+				.send();
+	}
+
+
+	private void displayChunkTickets(final CommandSender sender)
+	{
+		plugin.messageBuilder.compose(sender, MessageId.COMMAND_STATUS_CHUNK_TICKETS)
+				.setMacro(Macro.COUNT, plugin.teleportHandler.getActiveChunkTickets())
+				.send();
+	}
+
+
+	private void displayAdmission(final CommandSender sender)
+	{
+		plugin.messageBuilder.compose(sender, MessageId.COMMAND_STATUS_ADMISSION)
+				.setMacro(Macro.COUNT, plugin.teleportHandler.getAdmissionBudget())
+				.setMacro(Macro.QUANTITY, plugin.teleportHandler.getAdmissionQueueDepth())
+				.setMacro(Macro.TOTAL, plugin.teleportHandler.getTotalAdmissionQueued())
+				.send();
+
+		plugin.messageBuilder.compose(sender, MessageId.COMMAND_STATUS_ADMISSION_WAIT)
+				.setMacro(Macro.DURATION, plugin.teleportHandler.getAverageAdmissionWait())
+				.setMacro(Macro.MAX_DURATION, plugin.teleportHandler.getMaxAdmissionWait())
+				.send();
+	}
+
+
+	private void displaySpawnCache(final CommandSender sender)
+	{
+		plugin.messageBuilder.compose(sender, MessageId.COMMAND_STATUS_SPAWN_CACHE)
+				.setMacro(Macro.COUNT, plugin.teleportHandler.getSpawnCacheHits())
+				.setMacro(Macro.QUANTITY, plugin.teleportHandler.getSpawnCacheMisses())
+				.send();
+	}
+
+
+	private void displayArrivalEffects(final CommandSender sender)
+	{
+		plugin.messageBuilder.compose(sender, MessageId.COMMAND_STATUS_ARRIVAL_EFFECTS)
+				.setMacro(Macro.COUNT, plugin.teleportHandler.getMergedArrivalStrikes())
+				.send();
+	}
+
+
+	private void displayDenialThrottle(final CommandSender sender)
+	{
+		plugin.messageBuilder.compose(sender, MessageId.COMMAND_STATUS_DENIAL_THROTTLE)
+				.setMacro(Macro.COUNT, plugin.teleportHandler.getSuppressedDenials())
+				.setMacro(Macro.QUANTITY, plugin.teleportHandler.getCoalescedDenials())
+				.send();
+	}
+
+
+	private void displayUsageLog(final CommandSender sender)
+	{
+		plugin.messageBuilder.compose(sender, MessageId.COMMAND_STATUS_USAGE_LOG)
+				.setMacro(Macro.COUNT, plugin.teleportHandler.getUsageLogWritten())
+				.setMacro(Macro.QUANTITY, plugin.teleportHandler.getUsageLogDropped())
+				.setMacro(Macro.TOTAL, plugin.teleportHandler.getUsageLogSpilled())
+				.send();
+	}
+
+
+	private void displayAuditLog(final CommandSender sender)
+	{
+		plugin.messageBuilder.compose(sender, MessageId.COMMAND_STATUS_AUDIT_LOG)
+				.setMacro(Macro.COUNT, plugin.teleportHandler.getAuditLogWritten())
+				.setMacro(Macro.TOTAL, plugin.teleportHandler.getAuditLogSpilled())
+				.send();
+	}
+
+
 	private void displayStatusFooter(final CommandSender sender)
 	{
 		plugin.messageBuilder.compose(sender, MessageId.COMMAND_STATUS_FOOTER)
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.listeners;
+
+import com.winterhavenmc.homestar.PluginMain;
+
+import org.bukkit.Material;
+import org.bukkit.Tag;
+import org.bukkit.block.Block;
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.BlockBreakEvent;
+import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
+
+import java.util.List;
+
+
+/**
+ * Implements block event listener for HomeStar events.<br>
+ * Removes cached respawn locations when a bed or respawn anchor is destroyed.
+ */
+public final class BlockEventListener implements Listener
+{
+	// reference to main class
+	private final PluginMain plugin;
+
+
+	/**
+	 * Class constructor for BlockEventListener
+	 *
+	 * @param plugin reference to this plugin's main class
+	 */
+	public BlockEventListener(final PluginMain plugin)
+	{
+		// reference to main
+		this.plugin = plugin;
+
+		// register events in this class
+		plugin.getServer().getPluginManager().registerEvents(this, plugin);
+	}
+
+
+	/**
+	 * Block break event handler
+	 *
+	 * @param event BlockBreakEvent handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockBreak(final BlockBreakEvent event)
+	{
+		invalidateIfRespawnBlock(event.getBlock());
+	}
+
+
+	/**
+	 * Block burn event handler
+	 *
+	 * @param event BlockBurnEvent handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockBurn(final BlockBurnEvent event)
+	{
+		invalidateIfRespawnBlock(event.getBlock());
+	}
+
+
+	/**
+	 * Block explode event handler, for beds and respawn anchors that explode when used in the wrong dimension
+	 *
+	 * @param event BlockExplodeEvent handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onBlockExplode(final BlockExplodeEvent event)
+	{
+		invalidateIfRespawnBlock(event.getBlock());
+		invalidateRespawnBlocks(event.blockList());
+	}
+
+
+	/**
+	 * Entity explode event handler
+	 *
+	 * @param event EntityExplodeEvent handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onEntityExplode(final EntityExplodeEvent event)
+	{
+		invalidateRespawnBlocks(event.blockList());
+	}
+
+
+	private void invalidateRespawnBlocks(final List<Block> blocks)
+	{
+		for (Block block : blocks)
+		{
+			invalidateIfRespawnBlock(block);
+		}
+	}
+
+
+	private void invalidateIfRespawnBlock(final Block block)
+	{
+		Material material = block.getType();
+		if (Tag.BEDS.isTagged(material) || material == Material.RESPAWN_ANCHOR)
+		{
+			plugin.teleportHandler.invalidateRespawnLocations(block);
+		}
+	}
+
+}
@@ -18,19 +18,24 @@
 package com.winterhavenmc.homestar.listeners;
 
 import com.winterhavenmc.homestar.PluginMain;
-import com.winterhavenmc.homestar.util.MessageId;
 
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
-import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityPickupItemEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
 import org.bukkit.event.inventory.PrepareItemCraftEvent;
-import org.bukkit.event.player.PlayerMoveEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
+import org.bukkit.event.player.PlayerItemHeldEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
+import org.bukkit.event.player.PlayerSpawnChangeEvent;
+import org.bukkit.event.player.PlayerSwapHandItemsEvent;
+import org.bukkit.inventory.CraftingInventory;
 import org.bukkit.inventory.ItemStack;
-
-import java.util.Objects;
+import org.bukkit.inventory.Recipe;
 
 
 /**
@@ -85,12 +90,35 @@ public final class PlayerEventListener implements Listener
 
 		// cancel any pending teleport for player
 		plugin.teleportHandler.cancelTeleport(player);
+
+		// remove cached respawn location for player
+		plugin.teleportHandler.invalidateRespawnLocation(player);
+
+		// discard tracked HomeStar item slots for player
+		plugin.teleportHandler.invalidateItemSlots(player);
+
+		// discard denial message throttling for player
+		plugin.teleportHandler.forgetDenials(player);
+	}
+
+
+	/**
+	 * Player spawn change event handler<br>
+	 * Removes cached respawn location when a player sets or loses their bed or respawn anchor spawn
+	 *
+	 * @param event PlayerSpawnChangeEvent handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onPlayerSpawnChange(final PlayerSpawnChangeEvent event)
+	{
+		plugin.teleportHandler.invalidateRespawnLocation(event.getPlayer());
 	}
 
 
 	/**
 	 * Prepare Item Craft event handler<br>
-	 * Prevents HomeStar items from being used in crafting recipes if configured
+	 * Prevents HomeStar items from being used in crafting recipes if configured. Grids that match no recipe,
+	 * or a recipe that can never accept a HomeStar item, are passed without checking the grid items.
 	 *
 	 * @param event PrepareItemCraftEvent handled by this method
 	 */
@@ -98,78 +126,119 @@ public final class PlayerEventListener implements Listener
 	void onCraftPrepare(final PrepareItemCraftEvent event)
 	{
 		// if allow-in-recipes is true in configuration, do nothing and return
-		if (plugin.getConfig().getBoolean("allow-in-recipes"))
+		if (plugin.settings.allowInRecipes())
+		{
+			return;
+		}
+
+		// if grid matches no recipe, or a recipe that never accepts HomeStar materials, do nothing and return
+		Recipe recipe = event.getRecipe();
+		if (recipe == null || !plugin.homeStarUtility.mayAcceptHomeStar(recipe))
 		{
 			return;
 		}
 
-		// if crafting inventory contains HomeStar item, set result item to null
-		for (ItemStack itemStack : event.getInventory())
+		// if crafting grid contains HomeStar item, set result item to null
+		CraftingInventory inventory = event.getInventory();
+		for (ItemStack itemStack : inventory.getMatrix())
 		{
-			if (plugin.messageBuilder.items().isItem(itemStack))
+			if (plugin.homeStarUtility.isHomeStar(itemStack))
 			{
-				event.getInventory().setResult(null);
+				inventory.setResult(null);
+				return;
 			}
 		}
 	}
 
 
 	/**
-	 * EntityDamageByEntity event handler<br>
-	 * Cancels pending teleport if player takes damage during warmup
+	 * Inventory click event handler<br>
+	 * Discards tracked HomeStar item slots, since the click may have moved items between slots
 	 *
-	 * @param event EntityDamageEvent handled by this method
+	 * @param event InventoryClickEvent handled by this method
 	 */
-	@EventHandler(ignoreCancelled = true)
-	void onEntityDamage(final EntityDamageEvent event)
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onInventoryClick(final InventoryClickEvent event)
 	{
-		// if cancel-on-damage configuration is true, check if damaged entity is player
-		// if damaged entity is player, check for pending teleport and
-		// if player is in warmup hashmap, cancel teleport and send player message
-		if (plugin.getConfig().getBoolean("cancel-on-damage")
-				&& event.getEntity() instanceof Player player
-				&& plugin.teleportHandler.isWarmingUp(player))
+		if (event.getWhoClicked() instanceof Player player)
 		{
-			cancelTeleportWithMessage(player, MessageId.TELEPORT_CANCELLED_DAMAGE);
+			plugin.teleportHandler.invalidateItemSlots(player);
 		}
 	}
 
 
 	/**
-	 * PlayerMoveEvent handler<br>
-	 * Cancels teleport if player moves during warmup
+	 * Inventory drag event handler<br>
+	 * Discards tracked HomeStar item slots, since the drag may have moved items between slots
 	 *
-	 * @param event PlayerMoveEvent handled by this method
+	 * @param event InventoryDragEvent handled by this method
 	 */
-	@EventHandler
-	void onPlayerMovement(final PlayerMoveEvent event)
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onInventoryDrag(final InventoryDragEvent event)
 	{
-		// if cancel-on-movement configuration is false, do nothing and return
-		if (!plugin.getConfig().getBoolean("cancel-on-movement"))
+		if (event.getWhoClicked() instanceof Player player)
 		{
-			return;
+			plugin.teleportHandler.invalidateItemSlots(player);
 		}
+	}
+
+
+	/**
+	 * Player drop item event handler<br>
+	 * Discards tracked HomeStar item slots, since the dropped item may have emptied a tracked slot
+	 *
+	 * @param event PlayerDropItemEvent handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onPlayerDropItem(final PlayerDropItemEvent event)
+	{
+		plugin.teleportHandler.invalidateItemSlots(event.getPlayer());
+	}
 
-		// if player is in warmup hashmap, check for player movement other than head turning
-		// and cancel teleport and send player message if movement detected
-		if (plugin.teleportHandler.isWarmingUp(event.getPlayer())
-				&& event.getFrom().distance(Objects.requireNonNull(event.getTo())) > 0)
+
+	/**
+	 * Entity pickup item event handler<br>
+	 * Records the slots that may receive a HomeStar item picked up by a player
+	 *
+	 * @param event EntityPickupItemEvent handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onEntityPickupItem(final EntityPickupItemEvent event)
+	{
+		if (event.getEntity() instanceof Player player
+				&& plugin.homeStarUtility.isHomeStar(event.getItem().getItemStack()))
 		{
-			cancelTeleportWithMessage(event.getPlayer(), MessageId.TELEPORT_CANCELLED_MOVEMENT);
+			plugin.teleportHandler.trackItemPickup(player, event.getItem().getItemStack());
 		}
 	}
 
 
 	/**
-	 * Cancel player teleportation, send message and play sound
+	 * Player swap hand items event handler<br>
+	 * Discards tracked HomeStar item slots, since items have moved between main hand and off hand
 	 *
-	 * @param player    the player whose teleportation is being cancelled
-	 * @param messageId the message id of the message sent to the player
+	 * @param event PlayerSwapHandItemsEvent handled by this method
 	 */
-	private void cancelTeleportWithMessage(final Player player, final MessageId messageId)
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onPlayerSwapHandItems(final PlayerSwapHandItemsEvent event)
 	{
-		plugin.teleportHandler.cancelTeleport(player);
-		plugin.messageBuilder.compose(player, messageId).send();
+		plugin.teleportHandler.invalidateItemSlots(event.getPlayer());
+	}
+
+
+	/**
+	 * Player item held event handler<br>
+	 * Records the newly selected slot if it holds a HomeStar item
+	 *
+	 * @param event PlayerItemHeldEvent handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onPlayerItemHeld(final PlayerItemHeldEvent event)
+	{
+		if (plugin.homeStarUtility.isHomeStar(event.getPlayer().getInventory().getItem(event.getNewSlot())))
+		{
+			plugin.teleportHandler.trackItemSlot(event.getPlayer(), event.getNewSlot());
+		}
 	}
 
 }
@@ -24,6 +24,7 @@ import com.winterhavenmc.homestar.util.MessageId;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.TileState;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.block.data.Openable;
 import org.bukkit.block.data.type.Switch;
 import org.bukkit.entity.Player;
@@ -32,6 +33,7 @@ import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.inventory.ItemStack;
 
 import java.util.Set;
 
@@ -45,7 +47,7 @@ public final class PlayerInteractEventListener implements Listener
 	private final PluginMain plugin;
 
 	// set of craft table materials
-	private final Set<Material> craftTables = Set.of(
+	private static final Set<Material> CRAFT_TABLES = Set.of(
 			Material.CARTOGRAPHY_TABLE,
 			Material.CRAFTING_TABLE,
 			Material.FLETCHING_TABLE,
@@ -53,6 +55,9 @@ public final class PlayerInteractEventListener implements Listener
 			Material.SMITHING_TABLE,
 			Material.STONECUTTER);
 
+	// lookup table indexed by material ordinal, true for blocks that may be used with an item in hand
+	private final boolean[] interactableMaterials = createInteractableTable();
+
 
 	/**
 	 * Class constructor for PlayerEventListener
@@ -80,14 +85,15 @@ public final class PlayerInteractEventListener implements Listener
 		// get player
 		final Player player = event.getPlayer();
 
-		// perform check for cancel-on-interaction
-		if (cancelTeleportOnInteraction(event))
+		// if item used is not a HomeStar, do nothing and return
+		if (!plugin.homeStarUtility.isHomeStar(event.getItem()))
 		{
 			return;
 		}
 
-		// if item used is not a HomeStar, do nothing and return
-		if (!plugin.messageBuilder.items().isItem(event.getItem()))
+		// if a HomeStar is also in the main hand, the off hand event duplicates the main hand event already handled
+		if (EquipmentSlot.OFF_HAND.equals(event.getHand())
+				&& plugin.homeStarUtility.isHomeStar(player.getInventory().getItemInMainHand()))
 		{
 			return;
 		}
@@ -116,25 +122,29 @@ public final class PlayerInteractEventListener implements Listener
 			// if players current world is not enabled in config, do nothing and return
 			if (!plugin.messageBuilder.worlds().isEnabled(player.getWorld().getUID()))
 			{
-				plugin.messageBuilder.compose(player, MessageId.TELEPORT_DENIED_WORLD_DISABLED)
-						.setMacro(Macro.ITEM, event.getItem())
-						.send();
+				final ItemStack item = event.getItem();
+				plugin.teleportHandler.sendDenial(player, MessageId.TELEPORT_DENIED_WORLD_DISABLED, () ->
+						plugin.messageBuilder.compose(player, MessageId.TELEPORT_DENIED_WORLD_DISABLED)
+								.setMacro(Macro.ITEM, item)
+								.send());
 				return;
 			}
 
 			// if player does not have homestar.use permission, send message and return
 			if (!player.hasPermission("homestar.use"))
 			{
-				plugin.messageBuilder.compose(player, MessageId.TELEPORT_FAIL_PERMISSION).send();
+				plugin.teleportHandler.sendDenial(player, MessageId.TELEPORT_FAIL_PERMISSION, () ->
+						plugin.messageBuilder.compose(player, MessageId.TELEPORT_FAIL_PERMISSION).send());
 				return;
 			}
 
 			// if shift-click configured and player is not sneaking,
 			// send teleport fail shift-click message, cancel event and return
-			if (plugin.getConfig().getBoolean("shift-click")
+			if (plugin.settings.shiftClick()
 					&& !player.isSneaking())
 			{
-				plugin.messageBuilder.compose(player, MessageId.TELEPORT_FAIL_SHIFT_CLICK).send();
+				plugin.teleportHandler.sendDenial(player, MessageId.TELEPORT_FAIL_SHIFT_CLICK, () ->
+						plugin.messageBuilder.compose(player, MessageId.TELEPORT_FAIL_SHIFT_CLICK).send());
 				return;
 			}
 
@@ -144,39 +154,6 @@ public final class PlayerInteractEventListener implements Listener
 	}
 
 
-	/**
-	 * Check if cancel on interaction is configured and if such interaction has occurred
-	 *
-	 * @param event the event to check for player/block interaction
-	 * @return true if cancellable interaction occurred, false if not
-	 */
-	boolean cancelTeleportOnInteraction(final PlayerInteractEvent event)
-	{
-		final Player player = event.getPlayer();
-		final Action action = event.getAction();
-		final EquipmentSlot hand = event.getHand();
-
-		// if cancel-on-interaction is configured true, and player is in warmup hashmap,
-		// and player is interacting with a block (not air) then cancel teleport, output message and return
-		if (plugin.getConfig().getBoolean("cancel-on-interaction")
-				&& plugin.teleportHandler.isWarmingUp(player)
-				&& (Action.LEFT_CLICK_BLOCK.equals(action) || Action.RIGHT_CLICK_BLOCK.equals(action)))
-		{
-			// if item used is in off_hand, do nothing and return
-			if (EquipmentSlot.OFF_HAND.equals(hand))
-			{
-				return true;
-			}
-
-			// cancel teleport and send message, play sound
-			plugin.teleportHandler.cancelTeleport(player);
-			plugin.messageBuilder.compose(player, MessageId.TELEPORT_CANCELLED_INTERACTION).send();
-			return true;
-		}
-		return false;
-	}
-
-
 	/**
 	 * Check if a player click is an allowed action
 	 *
@@ -194,7 +171,7 @@ public final class PlayerInteractEventListener implements Listener
 		// if event action is left-click, and left-click is config disabled, do nothing and return
 		return event.getAction().equals(Action.LEFT_CLICK_BLOCK)
 				|| event.getAction().equals(Action.LEFT_CLICK_AIR)
-				&& !plugin.getConfig().getBoolean("left-click");
+				&& !plugin.settings.leftClick();
 	}
 
 
@@ -206,26 +183,55 @@ public final class PlayerInteractEventListener implements Listener
 	 */
 	boolean allowedInteraction(Block block)
 	{
-		// allow use of doors, gates and trap doors with item in hand
-		if (block.getBlockData() instanceof Openable)
-		{
-			return true;
-		}
+		return interactableMaterials[block.getType().ordinal()];
+	}
 
-		// allow use of switches with item in hand
-		if (block.getBlockData() instanceof Switch)
-		{
-			return true;
-		}
 
-		// allow use of containers and other tile entity blocks with item in hand
-		if (block.getState() instanceof TileState)
+	/**
+	 * Create lookup table of block materials that may be used with an item in hand.
+	 * Block data and block state instances are created once per material here,
+	 * so no block state snapshot is created when a player clicks a block.
+	 *
+	 * @return boolean array indexed by material ordinal
+	 */
+	private static boolean[] createInteractableTable()
+	{
+		Material[] materials = Material.values();
+		boolean[] table = new boolean[materials.length];
+
+		for (Material material : materials)
 		{
-			return true;
+			// allow use of crafting tables with item in hand
+			if (CRAFT_TABLES.contains(material))
+			{
+				table[material.ordinal()] = true;
+				continue;
+			}
+
+			// skip legacy materials by name, since Material#isLegacy is deprecated
+			if (!material.isBlock() || material.name().startsWith("LEGACY_"))
+			{
+				continue;
+			}
+
+			try
+			{
+				BlockData blockData = material.createBlockData();
+
+				// allow use of doors, gates and trap doors, switches,
+				// and containers and other tile entity blocks with item in hand
+				table[material.ordinal()] = blockData instanceof Openable
+						|| blockData instanceof Switch
+						|| blockData.createBlockState() instanceof TileState;
+			}
+			catch (RuntimeException e)
+			{
+				// material has no block data or block state on this server version
+				table[material.ordinal()] = false;
+			}
 		}
 
-		// allow use of crafting tables with item in hand
-		return craftTables.contains(block.getType());
+		return table;
 	}
 
 
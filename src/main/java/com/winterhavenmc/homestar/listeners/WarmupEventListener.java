@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.listeners;
+
+import com.winterhavenmc.homestar.PluginMain;
+import com.winterhavenmc.homestar.teleport.TeleportOutcome;
+import com.winterhavenmc.homestar.util.HomeStarSettings;
+import com.winterhavenmc.homestar.util.MessageId;
+
+import org.bukkit.entity.Player;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.HandlerList;
+import org.bukkit.event.Listener;
+import org.bukkit.event.block.Action;
+import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.player.PlayerInteractEvent;
+import org.bukkit.inventory.EquipmentSlot;
+import org.bukkit.plugin.PluginManager;
+
+
+/**
+ * Implements listener for events that cancel a teleport during warmup.<br>
+ * Handlers are registered only while at least one player is warming up, and only for the
+ * cancel-on-damage and cancel-on-interaction options that are enabled, so the server does not
+ * call them for every event while no teleport is pending. Movement is checked by a once per
+ * tick sweep over warming up players instead of a move event handler.
+ */
+public final class WarmupEventListener implements Listener
+{
+	// reference to main class
+	private final PluginMain plugin;
+
+	// true while handlers are registered
+	private boolean registered;
+
+
+	/**
+	 * Class constructor for WarmupEventListener
+	 *
+	 * @param plugin reference to this plugin's main class
+	 */
+	public WarmupEventListener(final PluginMain plugin)
+	{
+		// reference to main
+		this.plugin = plugin;
+
+		// register handlers when the first warmup begins, and unregister them when the last warmup ends
+		plugin.teleportHandler.setWarmupActivityCallbacks(this::register, this::unregister);
+	}
+
+
+	/**
+	 * Register handlers for enabled cancel options
+	 */
+	private void register()
+	{
+		if (registered)
+		{
+			return;
+		}
+		registered = true;
+
+		PluginManager pluginManager = plugin.getServer().getPluginManager();
+		HomeStarSettings settings = plugin.settings;
+
+		if (settings.cancelOnDamage())
+		{
+			pluginManager.registerEvent(EntityDamageEvent.class, this, EventPriority.NORMAL, (listener, event) ->
+			{
+				if (event instanceof EntityDamageEvent damageEvent)
+				{
+					onEntityDamage(damageEvent);
+				}
+			}, plugin, true);
+		}
+
+		// interaction handler runs after the use handler, so the click that starts a teleport is seen by
+		// the use handler first, and is then ignored here because the teleport was initiated within the interact delay
+		if (settings.cancelOnInteraction())
+		{
+			pluginManager.registerEvent(PlayerInteractEvent.class, this, EventPriority.HIGH, (listener, event) ->
+			{
+				if (event instanceof PlayerInteractEvent interactEvent)
+				{
+					onPlayerInteract(interactEvent);
+				}
+			}, plugin, false);
+		}
+	}
+
+
+	/**
+	 * Unregister all handlers
+	 */
+	private void unregister()
+	{
+		if (registered)
+		{
+			registered = false;
+			HandlerList.unregisterAll(this);
+		}
+	}
+
+
+	/**
+	 * EntityDamageEvent handler<br>
+	 * Cancels pending teleport if player takes damage during warmup
+	 *
+	 * @param event EntityDamageEvent handled by this method
+	 */
+	private void onEntityDamage(final EntityDamageEvent event)
+	{
+		// if damaged entity is player in warmup hashmap, cancel teleport and send player message
+		if (event.getEntity() instanceof Player player
+				&& plugin.teleportHandler.isWarmingUp(player))
+		{
+			cancelTeleportWithMessage(player, TeleportOutcome.CANCELLED_DAMAGE, MessageId.TELEPORT_CANCELLED_DAMAGE);
+		}
+	}
+
+
+	/**
+	 * PlayerInteractEvent handler<br>
+	 * Cancels teleport if player interacts with a block during warmup
+	 *
+	 * @param event PlayerInteractEvent handled by this method
+	 */
+	private void onPlayerInteract(final PlayerInteractEvent event)
+	{
+		final Player player = event.getPlayer();
+		final Action action = event.getAction();
+
+		// if player is in warmup hashmap, and teleport was not initiated by this click,
+		// and player is interacting with a block (not air) with main hand, then cancel teleport and send message
+		if (EquipmentSlot.HAND.equals(event.getHand())
+				&& (Action.LEFT_CLICK_BLOCK.equals(action) || Action.RIGHT_CLICK_BLOCK.equals(action))
+				&& plugin.teleportHandler.isWarmingUp(player)
+				&& !plugin.teleportHandler.isInitiated(player))
+		{
+			cancelTeleportWithMessage(player, TeleportOutcome.CANCELLED_INTERACTION, MessageId.TELEPORT_CANCELLED_INTERACTION);
+		}
+	}
+
+
+	/**
+	 * Cancel player teleportation, send message and play sound
+	 *
+	 * @param player    the player whose teleportation is being cancelled
+	 * @param outcome   the reason recorded in the teleport audit log
+	 * @param messageId the message id of the message sent to the player
+	 */
+	private void cancelTeleportWithMessage(final Player player, final TeleportOutcome outcome, final MessageId messageId)
+	{
+		plugin.teleportHandler.cancelTeleport(player, outcome);
+		plugin.messageBuilder.compose(player, messageId).send();
+	}
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.listeners;
+
+import com.winterhavenmc.homestar.PluginMain;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.SpawnChangeEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.bukkit.event.world.WorldUnloadEvent;
+
+
+/**
+ * Implements world event listener for HomeStar events
+ */
+public final class WorldEventListener implements Listener
+{
+	// reference to main class
+	private final PluginMain plugin;
+
+
+	/**
+	 * Class constructor for WorldEventListener
+	 *
+	 * @param plugin reference to this plugin's main class
+	 */
+	public WorldEventListener(final PluginMain plugin)
+	{
+		// reference to main
+		this.plugin = plugin;
+
+		// register events in this class
+		plugin.getServer().getPluginManager().registerEvents(this, plugin);
+	}
+
+
+	/**
+	 * World load event handler<br>
+	 * Rebuilds world pair index to include the loaded world, and removes any cached spawn location for the world
+	 *
+	 * @param event WorldLoadEvent handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onWorldLoad(final WorldLoadEvent event)
+	{
+		plugin.teleportHandler.rebuildWorldPairIndex();
+		plugin.teleportHandler.invalidateSpawnLocation(event.getWorld());
+	}
+
+
+	/**
+	 * World unload event handler<br>
+	 * Rebuilds world pair index without the unloading world, which is still in the server world list,
+	 * and removes cached spawn and respawn locations in the unloading world
+	 *
+	 * @param event WorldUnloadEvent handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+	void onWorldUnload(final WorldUnloadEvent event)
+	{
+		plugin.teleportHandler.rebuildWorldPairIndex(event.getWorld());
+		plugin.teleportHandler.invalidateRespawnLocations(event.getWorld());
+		plugin.teleportHandler.invalidateSpawnLocation(event.getWorld());
+	}
+
+
+	/**
+	 * Spawn change event handler<br>
+	 * Removes cached spawn location for the world whose spawn has changed
+	 *
+	 * @param event SpawnChangeEvent handled by this method
+	 */
+	@EventHandler(priority = EventPriority.MONITOR)
+	void onSpawnChange(final SpawnChangeEvent event)
+	{
+		plugin.teleportHandler.invalidateSpawnLocation(event.getWorld());
+	}
+
+}
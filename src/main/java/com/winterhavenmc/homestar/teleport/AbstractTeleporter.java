@@ -25,8 +25,6 @@ import org.bukkit.Location;
 import org.bukkit.World;
 import org.bukkit.entity.Player;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.Optional;
 
 
@@ -55,9 +53,9 @@ abstract class AbstractTeleporter
 	 */
 	final Optional<Location> getHomeDestination(final Player player)
 	{
-		return (player == null || player.getRespawnLocation() == null)
+		return (player == null)
 				? Optional.empty()
-				: Optional.of(player.getRespawnLocation());
+				: plugin.teleportHandler.getRespawnCache().get(player);
 	}
 
 
@@ -71,7 +69,7 @@ abstract class AbstractTeleporter
 	{
 		return (player == null)
 				? Optional.empty()
-				: plugin.messageBuilder.worlds().spawnLocation(player.getWorld().getUID());
+				: plugin.teleportHandler.getSpawnCache().get(player.getWorld().getUID());
 	}
 
 
@@ -104,34 +102,8 @@ abstract class AbstractTeleporter
 			return Optional.empty();
 		}
 
-		// create list to store normal environment worlds
-		List<World> normalWorlds = new ArrayList<>();
-
-		// iterate through all server worlds
-		for (World checkWorld : plugin.getServer().getWorlds())
-		{
-			// if world is normal environment, try to match name to passed world
-			if (checkWorld.getEnvironment().equals(World.Environment.NORMAL))
-			{
-				// check if normal world matches passed world minus nether/end suffix
-				if (checkWorld.getName().equals(player.getWorld().getName().replaceFirst("(_nether$|_the_end$)", "")))
-				{
-					return plugin.messageBuilder.worlds().spawnLocation(checkWorld.getUID());
-				}
-
-				// if no match, add to list of normal worlds
-				normalWorlds.add(checkWorld);
-			}
-		}
-
-		// if only one normal world exists, return that world
-		if (normalWorlds.size() == 1)
-		{
-			return plugin.messageBuilder.worlds().spawnLocation(normalWorlds.getFirst().getUID());
-		}
-
-		// if no matching normal world found and more than one normal world exists, return passed world spawn location
-		return plugin.messageBuilder.worlds().spawnLocation(player.getWorld().getUID());
+		// look up normal world paired with player world in precomputed index
+		return plugin.teleportHandler.getSpawnCache().get(plugin.teleportHandler.getWorldPairIndex().getOverworldUid(player.getWorld()));
 	}
 
 
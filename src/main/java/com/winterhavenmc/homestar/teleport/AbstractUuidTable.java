@@ -0,0 +1,301 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+
+/**
+ * Base class for open-addressing hash tables keyed by the two long halves of a {@link UUID}.
+ * Keys are stored in parallel primitive arrays and probed linearly, and removal uses backward
+ * shifting instead of tombstones, so lookups never allocate and never degrade over time.
+ * Subclasses store their values in a parallel primitive array of the same capacity.
+ * <p>
+ * Tables are not thread safe, and must only be accessed from the server main thread.
+ */
+abstract class AbstractUuidTable
+{
+	private static final int MIN_CAPACITY = 16;
+
+	// resize when more than three quarters of the slots are used
+	private static final int LOAD_FACTOR_SHIFT = 2;
+
+	private long[] mostBits;
+	private long[] leastBits;
+	private boolean[] used;
+	private int mask;
+	private int size;
+
+
+	AbstractUuidTable()
+	{
+		allocate(MIN_CAPACITY);
+	}
+
+
+	/**
+	 * Get the number of entries in the table
+	 *
+	 * @return the number of entries
+	 */
+	final int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * Check if the table contains no entries
+	 *
+	 * @return {@code true} if the table is empty, {@code false} if not
+	 */
+	final boolean isEmpty()
+	{
+		return size == 0;
+	}
+
+
+	/**
+	 * Check if the table contains a key
+	 *
+	 * @param uuid the key to check
+	 * @return {@code true} if the key is present, {@code false} if not
+	 */
+	final boolean containsKey(final UUID uuid)
+	{
+		return indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits()) >= 0;
+	}
+
+
+	/**
+	 * Remove a key and its value from the table
+	 *
+	 * @param uuid the key to remove
+	 * @return {@code true} if the key was present, {@code false} if not
+	 */
+	final boolean remove(final UUID uuid)
+	{
+		int index = indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+		if (index < 0)
+		{
+			return false;
+		}
+
+		removeAt(index);
+		return true;
+	}
+
+
+	/**
+	 * Remove all entries from the table
+	 */
+	final void clear()
+	{
+		Arrays.fill(used, false);
+		size = 0;
+	}
+
+
+	/**
+	 * Get the slot index of a key
+	 *
+	 * @param msb the most significant bits of the key
+	 * @param lsb the least significant bits of the key
+	 * @return the slot index of the key, or a negative value if the key is not present
+	 */
+	final int indexOf(final long msb, final long lsb)
+	{
+		int index = hash(msb, lsb) & mask;
+		while (used[index])
+		{
+			if (mostBits[index] == msb && leastBits[index] == lsb)
+			{
+				return index;
+			}
+			index = (index + 1) & mask;
+		}
+		return -1;
+	}
+
+
+	/**
+	 * Get the slot index for a key, inserting the key if it is not present. A newly inserted slot
+	 * holds whatever value was last stored there, so callers must always write the value.
+	 *
+	 * @param msb the most significant bits of the key
+	 * @param lsb the least significant bits of the key
+	 * @return the slot index of the key
+	 */
+	final int insertionIndex(final long msb, final long lsb)
+	{
+		if ((size + 1) > (used.length - (used.length >>> LOAD_FACTOR_SHIFT)))
+		{
+			rehash(used.length << 1);
+		}
+
+		int index = hash(msb, lsb) & mask;
+		while (used[index])
+		{
+			if (mostBits[index] == msb && leastBits[index] == lsb)
+			{
+				return index;
+			}
+			index = (index + 1) & mask;
+		}
+
+		used[index] = true;
+		mostBits[index] = msb;
+		leastBits[index] = lsb;
+		size++;
+		return index;
+	}
+
+
+	/**
+	 * Remove the entry at a slot, shifting following entries of the probe chain back into the gap
+	 *
+	 * @param index the slot index of the entry to remove
+	 */
+	final void removeAt(final int index)
+	{
+		int gap = index;
+		int current = (gap + 1) & mask;
+
+		while (used[current])
+		{
+			int home = hash(mostBits[current], leastBits[current]) & mask;
+
+			// move entry into gap if its home slot does not lie cyclically in (gap, current]
+			if (((current - home) & mask) >= ((current - gap) & mask))
+			{
+				mostBits[gap] = mostBits[current];
+				leastBits[gap] = leastBits[current];
+				moveValue(current, gap);
+				gap = current;
+			}
+			current = (current + 1) & mask;
+		}
+
+		used[gap] = false;
+		size--;
+	}
+
+
+	/**
+	 * Check if a slot holds an entry
+	 *
+	 * @param index the slot index
+	 * @return {@code true} if the slot is in use, {@code false} if not
+	 */
+	final boolean isUsed(final int index)
+	{
+		return used[index];
+	}
+
+
+	/**
+	 * Get the number of slots in the table
+	 *
+	 * @return the table capacity
+	 */
+	final int capacity()
+	{
+		return used.length;
+	}
+
+
+	/**
+	 * Get the key stored at a slot
+	 *
+	 * @param index the slot index
+	 * @return a new {@link UUID} for the key at the slot
+	 */
+	final UUID keyAt(final int index)
+	{
+		return new UUID(mostBits[index], leastBits[index]);
+	}
+
+
+	/**
+	 * Allocate value storage for the given capacity, copying existing values where they fit
+	 *
+	 * @param capacity the new capacity
+	 */
+	abstract void resizeValues(final int capacity);
+
+
+	/**
+	 * Copy a value from one slot to another
+	 *
+	 * @param from the source slot index
+	 * @param to   the destination slot index
+	 */
+	abstract void moveValue(final int from, final int to);
+
+
+	private void allocate(final int capacity)
+	{
+		mostBits = new long[capacity];
+		leastBits = new long[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+		resizeValues(capacity);
+	}
+
+
+	private void rehash(final int newCapacity)
+	{
+		long[] oldMostBits = mostBits;
+		long[] oldLeastBits = leastBits;
+		boolean[] oldUsed = used;
+		int oldCapacity = oldUsed.length;
+
+		// keep old values at the end of the enlarged value array while entries are reinserted
+		resizeValues(newCapacity + oldCapacity);
+		for (int i = 0; i < oldCapacity; i++)
+		{
+			moveValue(i, newCapacity + i);
+		}
+
+		mostBits = new long[newCapacity];
+		leastBits = new long[newCapacity];
+		used = new boolean[newCapacity];
+		mask = newCapacity - 1;
+		size = 0;
+
+		for (int i = 0; i < oldCapacity; i++)
+		{
+			if (oldUsed[i])
+			{
+				int index = insertionIndex(oldMostBits[i], oldLeastBits[i]);
+				moveValue(newCapacity + i, index);
+			}
+		}
+
+		resizeValues(newCapacity);
+	}
+
+
+	private static int hash(final long msb, final long lsb)
+	{
+		long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+}
@@ -0,0 +1,221 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import com.winterhavenmc.homestar.PluginMain;
+
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Objects;
+
+
+/**
+ * Limits the number of teleports committed in each server tick. The configured per-tick budget is
+ * scaled down while a smoothed average of measured tick intervals runs above the normal tick length,
+ * and teleports that do not fit the budget wait in a first-in first-out queue for a following tick.
+ * <p>
+ * This class is not thread safe, and must only be accessed from the server main thread.
+ */
+final class AdmissionController
+{
+	// normal length of a server tick in milliseconds
+	private static final double TARGET_TICK_MILLIS = 50.0;
+
+	// weight of the newest tick interval in the moving average
+	private static final double SMOOTHING = 0.2;
+
+	private final PluginMain plugin;
+
+	// teleports waiting for a later tick, in arrival order
+	private final ArrayDeque<Queued> queue = new ArrayDeque<>();
+
+	// tick interval measurement
+	private long lastTickNanos;
+	private double averageTickMillis = TARGET_TICK_MILLIS;
+
+	// budget for the current tick, and the part of it not yet used
+	private int tickBudget;
+	private int remaining;
+
+	// wait time metrics for teleports that have left the queue
+	private long totalQueued;
+	private double averageWaitMillis;
+	private long maxWaitMillis;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to plugin main class
+	 */
+	AdmissionController(final PluginMain plugin)
+	{
+		this.plugin = Objects.requireNonNull(plugin);
+	}
+
+
+	/**
+	 * Measure the interval since the previous tick and compute the budget for the current tick
+	 */
+	void beginTick()
+	{
+		long now = System.nanoTime();
+		if (lastTickNanos != 0L)
+		{
+			double intervalMillis = (now - lastTickNanos) / 1_000_000.0;
+			averageTickMillis += SMOOTHING * (intervalMillis - averageTickMillis);
+		}
+		lastTickNanos = now;
+
+		int configuredBudget = plugin.settings.commitBudget();
+		tickBudget = (configuredBudget <= 0)
+				? Integer.MAX_VALUE
+				: (int) Math.max(1L, Math.round(configuredBudget * Math.min(1.0, TARGET_TICK_MILLIS / averageTickMillis)));
+		remaining = tickBudget;
+	}
+
+
+	/**
+	 * Admit queued teleports, oldest first, until the queue is empty or the budget for this tick is used
+	 *
+	 * @param admitted the list to which admitted teleports are added
+	 */
+	void admitQueued(final List<DelayedTeleportTask> admitted)
+	{
+		long now = System.nanoTime();
+
+		while (remaining > 0 && !queue.isEmpty())
+		{
+			Queued queued = queue.poll();
+
+			// teleport was cancelled while it waited, so release its resources without using the budget
+			if (queued.task().isAbandoned())
+			{
+				queued.task().cancel();
+				continue;
+			}
+
+			recordWait((now - queued.enqueuedNanos()) / 1_000_000L);
+			admitted.add(queued.task());
+			remaining--;
+		}
+	}
+
+
+	/**
+	 * Admit a teleport that fell due in this tick, or queue it if earlier teleports are waiting
+	 * or the budget for this tick is used
+	 *
+	 * @param task the teleport that fell due
+	 * @return {@code true} if the teleport is admitted in this tick, {@code false} if it was queued
+	 */
+	boolean tryAdmit(final DelayedTeleportTask task)
+	{
+		if (queue.isEmpty() && remaining > 0)
+		{
+			remaining--;
+			return true;
+		}
+
+		queue.add(new Queued(task, System.nanoTime()));
+		totalQueued++;
+		task.notifyQueued(queue.size());
+		return false;
+	}
+
+
+	/**
+	 * Release all queued teleports without committing them
+	 */
+	void clear()
+	{
+		for (Queued queued : queue)
+		{
+			queued.task().cancel();
+		}
+		queue.clear();
+	}
+
+
+	/**
+	 * Get the number of teleports waiting in the queue
+	 *
+	 * @return the queue depth
+	 */
+	int getQueueDepth()
+	{
+		return queue.size();
+	}
+
+
+	/**
+	 * Get the budget computed for the current tick
+	 *
+	 * @return the number of teleports that may be committed in this tick, or zero if unlimited
+	 */
+	int getTickBudget()
+	{
+		return (tickBudget == Integer.MAX_VALUE) ? 0 : tickBudget;
+	}
+
+
+	/**
+	 * Get the number of teleports queued since the plugin was enabled
+	 *
+	 * @return the total number of queued teleports
+	 */
+	long getTotalQueued()
+	{
+		return totalQueued;
+	}
+
+
+	/**
+	 * Get the moving average of the time queued teleports have waited
+	 *
+	 * @return the average wait time
+	 */
+	Duration getAverageWait()
+	{
+		return Duration.ofMillis(Math.round(averageWaitMillis));
+	}
+
+
+	/**
+	 * Get the longest time a queued teleport has waited since the plugin was enabled
+	 *
+	 * @return the maximum wait time
+	 */
+	Duration getMaxWait()
+	{
+		return Duration.ofMillis(maxWaitMillis);
+	}
+
+
+	private void recordWait(final long waitMillis)
+	{
+		averageWaitMillis += SMOOTHING * (waitMillis - averageWaitMillis);
+		maxWaitMillis = Math.max(maxWaitMillis, waitMillis);
+	}
+
+
+	private record Queued(DelayedTeleportTask task, long enqueuedNanos) { }
+
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import com.winterhavenmc.homestar.PluginMain;
+import com.winterhavenmc.homestar.util.HomeStarSettings;
+import com.winterhavenmc.homestar.util.SoundId;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.HashSet;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+
+
+/**
+ * Plays the lightning strike and arrival sound for players arriving at a destination, merging the
+ * lightning of arrivals at the same destination block within a configured window of ticks. The first
+ * arrival at a destination opens a window and strikes lightning; later arrivals at that block
+ * before the window closes strike none, so a crowd arriving at spawn produces one strike instead of
+ * one per arriving player. Every arriving player still hears their own arrival sound. A window of
+ * zero ticks strikes lightning for every arrival.
+ * <p>
+ * This class is not thread safe, and must only be accessed from the server main thread.
+ */
+final class ArrivalEffects
+{
+	private final PluginMain plugin;
+	private final TeleportScheduler scheduler;
+
+	// destination blocks with an open merge window
+	private final Set<BlockKey> openWindows = new HashSet<>();
+
+	// number of lightning strikes not played because they were merged into an open window
+	private long mergedStrikes;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin    reference to plugin main class
+	 * @param scheduler the scheduler that closes merge windows
+	 */
+	ArrivalEffects(final PluginMain plugin, final TeleportScheduler scheduler)
+	{
+		this.plugin = Objects.requireNonNull(plugin);
+		this.scheduler = Objects.requireNonNull(scheduler);
+	}
+
+
+	/**
+	 * Play arrival effects for a player who has been teleported. The lightning strike is left out if it
+	 * is merged with an earlier arrival.
+	 *
+	 * @param player      the player who has arrived
+	 * @param destination the location the player arrived at
+	 * @param settings    the settings read for the current commit batch
+	 */
+	void arrive(final Player player, final Location destination, final HomeStarSettings settings)
+	{
+		if (settings.lightning())
+		{
+			strikeLightning(destination, settings.arrivalMergeTicks());
+		}
+
+		// play post-teleport sound if sound effects are enabled
+		plugin.messageBuilder.sounds().play(player, SoundId.TELEPORT_SUCCESS_ARRIVAL);
+	}
+
+
+	/**
+	 * Strike lightning at a destination, unless a strike at the same block opened a window that is still open
+	 *
+	 * @param destination the location the player arrived at
+	 * @param windowTicks the length of the merge window in ticks, or zero to strike for every arrival
+	 */
+	private void strikeLightning(final Location destination, final long windowTicks)
+	{
+		World world = Objects.requireNonNull(destination.getWorld());
+
+		if (windowTicks > 0)
+		{
+			BlockKey key = new BlockKey(world.getUID(),
+					destination.getBlockX(), destination.getBlockY(), destination.getBlockZ());
+
+			// merge into window opened by an earlier strike at the same block
+			if (!openWindows.add(key))
+			{
+				mergedStrikes++;
+				return;
+			}
+
+			scheduler.schedule(windowTicks, () -> openWindows.remove(key));
+		}
+
+		world.strikeLightningEffect(destination);
+	}
+
+
+	/**
+	 * Get the number of lightning strikes merged into an earlier strike at the same destination
+	 *
+	 * @return the number of merged lightning strikes
+	 */
+	long getMergedStrikes()
+	{
+		return mergedStrikes;
+	}
+
+
+	/**
+	 * Discard open merge windows
+	 */
+	void clear()
+	{
+		openWindows.clear();
+	}
+
+
+	/**
+	 * Key of a destination block
+	 */
+	private record BlockKey(UUID worldUid, int x, int y, int z) { }
+
+}
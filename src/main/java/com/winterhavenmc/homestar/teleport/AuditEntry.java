@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import java.util.UUID;
+
+
+/**
+ * A teleport read from the audit log
+ *
+ * @param timeMillis          the time of the outcome, in epoch milliseconds
+ * @param playerUid           the uuid of the teleporting player
+ * @param worldUid            the uuid of the world the player teleported from
+ * @param blockX              the block x coordinate the player teleported from
+ * @param blockY              the block y coordinate the player teleported from
+ * @param blockZ              the block z coordinate the player teleported from
+ * @param destinationWorldUid the uuid of the destination world
+ * @param destinationX        the destination block x coordinate
+ * @param destinationY        the destination block y coordinate
+ * @param destinationZ        the destination block z coordinate
+ * @param item                the material name of the item used
+ * @param warmupTicks         the ticks from initiating the teleport to its outcome
+ * @param outcome             the outcome of the teleport
+ */
+public record AuditEntry(long timeMillis,
+                         UUID playerUid,
+                         UUID worldUid,
+                         int blockX,
+                         int blockY,
+                         int blockZ,
+                         UUID destinationWorldUid,
+                         int destinationX,
+                         int destinationY,
+                         int destinationZ,
+                         String item,
+                         long warmupTicks,
+                         TeleportOutcome outcome)
+{ }
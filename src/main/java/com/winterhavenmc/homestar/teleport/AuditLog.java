@@ -0,0 +1,784 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+
+/**
+ * An append-only audit log of teleport outcomes, written by the usage log writer thread.
+ * Records have a fixed size, and are appended to an active segment file. When the active segment
+ * reaches the configured size, it is closed: its records are compressed in blocks, each block a
+ * separate gzip member, and a per-player index is written, sorted by player uuid. The index header
+ * holds the offset of each compressed block, so any record of a closed segment can be read by
+ * seeking to its block and inflating only that block. The oldest closed segments are deleted when
+ * more than the configured number are kept.
+ * <p>
+ * A player's history is read newest first, from the in-memory index of the active segment, then
+ * from the index of each closed segment, found with a binary search of the index file. A page is
+ * read by skipping whole segments by their record count, then reading only the records on the page.
+ * <p>
+ * An active segment left by a server stop is resumed when the log is next opened. This class is not
+ * thread safe, and must only be accessed from the usage log writer thread.
+ */
+final class AuditLog implements UsageSink
+{
+	// number of history entries on a page
+	static final int PAGE_SIZE = 10;
+
+	// record layout
+	private static final int RECORD_SIZE = 128;
+	private static final int ITEM_OFFSET = 86;
+	private static final int ITEM_LENGTH = 32;
+
+	// number of records compressed together in a closed segment
+	private static final int BLOCK_RECORDS = 256;
+
+	// index file layout: header, block offsets, then entries of player uuid and record number
+	private static final int INDEX_MAGIC = 0x48534158;
+	private static final int INDEX_VERSION = 1;
+	private static final int INDEX_HEADER_SIZE = 20;
+	private static final int INDEX_ENTRY_SIZE = 20;
+
+	private static final String DATA_SUFFIX = ".dat";
+	private static final String BLOCKS_SUFFIX = ".gz";
+	private static final String INDEX_SUFFIX = ".idx";
+	private static final String TEMP_SUFFIX = ".tmp";
+
+	private final Logger logger;
+	private final Path directory;
+	private final int segmentRecords;
+	private final int retainedSegments;
+
+	private boolean opened;
+
+	// closed segments, oldest first
+	private final List<ClosedSegment> closedSegments = new ArrayList<>();
+
+	// active segment, or null channel if the log could not be opened
+	private long activeId;
+	private FileChannel activeChannel;
+	private int activeRecords;
+	private final Map<UUID, RecordList> activeIndex = new HashMap<>();
+
+	// records written since the last flush
+	private final ByteBuffer writeBuffer = ByteBuffer.allocate(RECORD_SIZE * BLOCK_RECORDS);
+
+
+	/**
+	 * Class constructor. The log directory is not read until the log is opened.
+	 *
+	 * @param logger           logger for audit log errors
+	 * @param directory        the directory holding the segment files
+	 * @param segmentBytes     the size in bytes at which the active segment is closed
+	 * @param retainedSegments the number of closed segments kept
+	 */
+	AuditLog(final Logger logger, final Path directory, final long segmentBytes, final int retainedSegments)
+	{
+		this.logger = logger;
+		this.directory = directory;
+		this.segmentRecords = (int) Math.min(Integer.MAX_VALUE / RECORD_SIZE,
+				Math.max(BLOCK_RECORDS, segmentBytes / RECORD_SIZE));
+		this.retainedSegments = Math.max(1, retainedSegments);
+	}
+
+
+	/**
+	 * Open the log directory, close any active segment left by a server stop, and start a new active segment
+	 */
+	void open()
+	{
+		if (opened)
+		{
+			return;
+		}
+		opened = true;
+
+		try
+		{
+			Files.createDirectories(directory);
+
+			List<Long> dataIds = new ArrayList<>();
+			List<Long> indexIds = new ArrayList<>();
+			try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "segment-*"))
+			{
+				for (Path file : files)
+				{
+					String fileName = file.getFileName().toString();
+					if (fileName.endsWith(DATA_SUFFIX))
+					{
+						dataIds.add(parseId(fileName, DATA_SUFFIX));
+					}
+					else if (fileName.endsWith(INDEX_SUFFIX))
+					{
+						indexIds.add(parseId(fileName, INDEX_SUFFIX));
+					}
+				}
+			}
+
+			long maxId = 0;
+			for (long id : indexIds)
+			{
+				maxId = Math.max(maxId, id);
+				if (!dataIds.contains(id))
+				{
+					ClosedSegment segment = loadSegment(id);
+					if (segment != null)
+					{
+						closedSegments.add(segment);
+					}
+				}
+			}
+
+			// resume the newest data file as the active segment, unless it was interrupted while closing;
+			// close any other data file left by an interrupted rotation
+			dataIds.sort(null);
+			Long resumeId = null;
+			for (long id : dataIds)
+			{
+				maxId = Math.max(maxId, id);
+				if (id == dataIds.getLast() && !indexIds.contains(id))
+				{
+					resumeId = id;
+				}
+				else
+				{
+					closeSegment(id);
+				}
+			}
+			closedSegments.sort(Comparator.comparingLong(ClosedSegment::id));
+
+			if (resumeId != null)
+			{
+				resumeActive(resumeId);
+			}
+			else
+			{
+				startActive(maxId + 1);
+			}
+			enforceRetention();
+		}
+		catch (IOException | RuntimeException e)
+		{
+			logger.log(Level.WARNING, "Could not open teleport audit log. Teleports will not be audited.", e);
+			activeChannel = null;
+		}
+	}
+
+
+	@Override
+	public void write(final UsageRecord record) throws IOException
+	{
+		if (record.outcome == null)
+		{
+			return;
+		}
+
+		open();
+		if (activeChannel == null)
+		{
+			return;
+		}
+
+		if (!writeBuffer.hasRemaining())
+		{
+			flush();
+		}
+		encode(record, writeBuffer);
+
+		activeIndex.computeIfAbsent(record.playerUid, uid -> new RecordList()).add(activeRecords);
+		activeRecords++;
+
+		if (activeRecords >= segmentRecords)
+		{
+			flush();
+			rotate();
+		}
+	}
+
+
+	@Override
+	public void flush() throws IOException
+	{
+		if (activeChannel == null || writeBuffer.position() == 0)
+		{
+			return;
+		}
+
+		writeBuffer.flip();
+		while (writeBuffer.hasRemaining())
+		{
+			activeChannel.write(writeBuffer);
+		}
+		writeBuffer.clear();
+	}
+
+
+	@Override
+	public void close() throws IOException
+	{
+		flush();
+		if (activeChannel != null)
+		{
+			// the active segment is resumed when the log is next opened
+			activeChannel.close();
+			activeChannel = null;
+		}
+	}
+
+
+	/**
+	 * Read a page of a player's teleport history, newest first
+	 *
+	 * @param playerUid the player uuid
+	 * @param page      the page number, starting at one
+	 * @return the page of history
+	 * @throws IOException if the history could not be read
+	 */
+	AuditPage query(final UUID playerUid, final int page) throws IOException
+	{
+		open();
+		flush();
+
+		// count the player's records in each segment, newest segment last
+		RecordList active = activeIndex.get(playerUid);
+		int activeCount = (active == null) ? 0 : active.size;
+		int segmentCount = closedSegments.size();
+		int[] first = new int[segmentCount];
+		int[] counts = new int[segmentCount];
+		long total = activeCount;
+		for (int i = 0; i < segmentCount; i++)
+		{
+			ClosedSegment segment = closedSegments.get(i);
+			try (FileChannel index = FileChannel.open(path(segment.id(), INDEX_SUFFIX), StandardOpenOption.READ))
+			{
+				first[i] = segment.lowerBound(index, playerUid, false);
+				counts[i] = segment.lowerBound(index, playerUid, true) - first[i];
+			}
+			total += counts[i];
+		}
+
+		int pageCount = (int) ((total + PAGE_SIZE - 1) / PAGE_SIZE);
+		if (page < 1 || page > pageCount)
+		{
+			return new AuditPage(page, pageCount, total, List.of());
+		}
+
+		long skip = (long) (page - 1) * PAGE_SIZE;
+		List<AuditEntry> entries = new ArrayList<>(PAGE_SIZE);
+
+		// read from the active segment first, since it holds the newest records
+		if (skip >= activeCount)
+		{
+			skip -= activeCount;
+		}
+		else
+		{
+			ByteBuffer buffer = ByteBuffer.allocate(RECORD_SIZE);
+			try (FileChannel data = FileChannel.open(path(activeId, DATA_SUFFIX), StandardOpenOption.READ))
+			{
+				for (int k = activeCount - 1 - (int) skip; k >= 0 && entries.size() < PAGE_SIZE; k--)
+				{
+					buffer.clear();
+					readFully(data, buffer, (long) active.get(k) * RECORD_SIZE);
+					entries.add(decode(buffer, 0));
+				}
+			}
+			skip = 0;
+		}
+
+		// then from closed segments, newest first, skipping whole segments by their record count
+		for (int i = segmentCount - 1; i >= 0 && entries.size() < PAGE_SIZE; i--)
+		{
+			if (skip >= counts[i])
+			{
+				skip -= counts[i];
+				continue;
+			}
+
+			ClosedSegment segment = closedSegments.get(i);
+			try (FileChannel index = FileChannel.open(path(segment.id(), INDEX_SUFFIX), StandardOpenOption.READ);
+			     FileChannel blocks = FileChannel.open(path(segment.id(), BLOCKS_SUFFIX), StandardOpenOption.READ))
+			{
+				BlockReader reader = new BlockReader(segment, blocks);
+				for (int k = first[i] + counts[i] - 1 - (int) skip; k >= first[i] && entries.size() < PAGE_SIZE; k--)
+				{
+					int recordNumber = segment.recordNumber(index, k);
+					entries.add(reader.read(recordNumber));
+				}
+			}
+			skip = 0;
+		}
+
+		return new AuditPage(page, pageCount, total, entries);
+	}
+
+
+	/**
+	 * Close the active segment and start a new one
+	 *
+	 * @throws IOException if the segment could not be closed
+	 */
+	private void rotate() throws IOException
+	{
+		activeChannel.close();
+		activeChannel = null;
+		closeSegment(activeId);
+		startActive(activeId + 1);
+		enforceRetention();
+	}
+
+
+	private void startActive(final long id) throws IOException
+	{
+		activeId = id;
+		activeRecords = 0;
+		activeIndex.clear();
+		activeChannel = FileChannel.open(path(id, DATA_SUFFIX),
+				StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+	}
+
+
+	/**
+	 * Reopen an active segment left by a server stop, discarding any partly written last record,
+	 * and rebuild its in-memory player index
+	 *
+	 * @param id the segment id
+	 * @throws IOException if the segment could not be read
+	 */
+	private void resumeActive(final long id) throws IOException
+	{
+		Path data = path(id, DATA_SUFFIX);
+		int recordCount = (int) Math.min(Integer.MAX_VALUE / RECORD_SIZE, Files.size(data) / RECORD_SIZE);
+
+		activeId = id;
+		activeRecords = 0;
+		activeIndex.clear();
+		activeChannel = FileChannel.open(data, StandardOpenOption.READ, StandardOpenOption.WRITE);
+		activeChannel.truncate((long) recordCount * RECORD_SIZE);
+		activeChannel.position((long) recordCount * RECORD_SIZE);
+
+		ByteBuffer records = ByteBuffer.allocate(recordCount * RECORD_SIZE);
+		readFully(activeChannel, records, 0L);
+		for (int i = 0; i < recordCount; i++)
+		{
+			UUID playerUid = new UUID(records.getLong(i * RECORD_SIZE + 8), records.getLong(i * RECORD_SIZE + 16));
+			activeIndex.computeIfAbsent(playerUid, uid -> new RecordList()).add(i);
+		}
+		activeRecords = recordCount;
+
+		if (activeRecords >= segmentRecords)
+		{
+			rotate();
+		}
+	}
+
+
+	/**
+	 * Compress the records of a segment data file in blocks, write its index, and delete the data file.
+	 * The compressed blocks and index are written to temporary files and then moved into place, so a
+	 * segment interrupted while closing is closed again from its data file.
+	 *
+	 * @param id the segment id
+	 * @throws IOException if the segment could not be closed
+	 */
+	private void closeSegment(final long id) throws IOException
+	{
+		Path data = path(id, DATA_SUFFIX);
+		int recordCount = (int) Math.min(Integer.MAX_VALUE / RECORD_SIZE, Files.size(data) / RECORD_SIZE);
+		if (recordCount == 0)
+		{
+			Files.delete(data);
+			return;
+		}
+
+		ByteBuffer records = ByteBuffer.allocate(recordCount * RECORD_SIZE);
+		try (FileChannel channel = FileChannel.open(data, StandardOpenOption.READ))
+		{
+			readFully(channel, records, 0L);
+		}
+
+		// compress each block of records as a separate gzip member, recording block offsets
+		int blockCount = (recordCount + BLOCK_RECORDS - 1) / BLOCK_RECORDS;
+		long[] blockOffsets = new long[blockCount + 1];
+		Path blocksTemp = path(id, BLOCKS_SUFFIX + TEMP_SUFFIX);
+		try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(blocksTemp)))
+		{
+			ByteArrayOutputStream block = new ByteArrayOutputStream(RECORD_SIZE * BLOCK_RECORDS / 4);
+			for (int b = 0; b < blockCount; b++)
+			{
+				int start = b * BLOCK_RECORDS * RECORD_SIZE;
+				int length = Math.min(BLOCK_RECORDS, recordCount - b * BLOCK_RECORDS) * RECORD_SIZE;
+
+				block.reset();
+				try (GZIPOutputStream gzip = new GZIPOutputStream(block))
+				{
+					gzip.write(records.array(), start, length);
+				}
+				block.writeTo(out);
+				blockOffsets[b + 1] = blockOffsets[b] + block.size();
+			}
+		}
+
+		// sort record numbers by player uuid, then by record number
+		Integer[] order = new Integer[recordCount];
+		for (int i = 0; i < recordCount; i++)
+		{
+			order[i] = i;
+		}
+		Arrays.sort(order, Comparator
+				.comparingLong((Integer n) -> records.getLong(n * RECORD_SIZE + 8))
+				.thenComparingLong(n -> records.getLong(n * RECORD_SIZE + 16))
+				.thenComparingInt(n -> n));
+
+		Path indexTemp = path(id, INDEX_SUFFIX + TEMP_SUFFIX);
+		try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(indexTemp))))
+		{
+			out.writeInt(INDEX_MAGIC);
+			out.writeInt(INDEX_VERSION);
+			out.writeInt(recordCount);
+			out.writeInt(BLOCK_RECORDS);
+			out.writeInt(blockCount);
+			for (long offset : blockOffsets)
+			{
+				out.writeLong(offset);
+			}
+			for (int recordNumber : order)
+			{
+				out.writeLong(records.getLong(recordNumber * RECORD_SIZE + 8));
+				out.writeLong(records.getLong(recordNumber * RECORD_SIZE + 16));
+				out.writeInt(recordNumber);
+			}
+		}
+
+		Files.move(blocksTemp, path(id, BLOCKS_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+		Files.move(indexTemp, path(id, INDEX_SUFFIX), StandardCopyOption.REPLACE_EXISTING);
+		Files.delete(data);
+
+		closedSegments.removeIf(segment -> segment.id() == id);
+		closedSegments.add(new ClosedSegment(id, recordCount, blockOffsets));
+	}
+
+
+	/**
+	 * Read the header of a closed segment index
+	 *
+	 * @param id the segment id
+	 * @return the closed segment, or null if its files are missing or not valid
+	 */
+	private ClosedSegment loadSegment(final long id)
+	{
+		if (!Files.exists(path(id, BLOCKS_SUFFIX)))
+		{
+			return null;
+		}
+
+		try (DataInputStream in = new DataInputStream(Files.newInputStream(path(id, INDEX_SUFFIX))))
+		{
+			if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION)
+			{
+				logger.warning("Skipping teleport audit segment " + id + " with unknown index format.");
+				return null;
+			}
+
+			int recordCount = in.readInt();
+			int blockRecords = in.readInt();
+			int blockCount = in.readInt();
+			if (blockRecords != BLOCK_RECORDS)
+			{
+				logger.warning("Skipping teleport audit segment " + id + " with unknown block size.");
+				return null;
+			}
+
+			long[] blockOffsets = new long[blockCount + 1];
+			for (int i = 0; i <= blockCount; i++)
+			{
+				blockOffsets[i] = in.readLong();
+			}
+			return new ClosedSegment(id, recordCount, blockOffsets);
+		}
+		catch (IOException e)
+		{
+			logger.log(Level.WARNING, "Skipping unreadable teleport audit segment " + id + ".", e);
+			return null;
+		}
+	}
+
+
+	/**
+	 * Delete the oldest closed segments beyond the configured number kept
+	 */
+	private void enforceRetention()
+	{
+		while (closedSegments.size() > retainedSegments)
+		{
+			ClosedSegment oldest = closedSegments.removeFirst();
+			try
+			{
+				Files.deleteIfExists(path(oldest.id(), INDEX_SUFFIX));
+				Files.deleteIfExists(path(oldest.id(), BLOCKS_SUFFIX));
+			}
+			catch (IOException e)
+			{
+				logger.log(Level.WARNING, "Could not delete teleport audit segment " + oldest.id() + ".", e);
+			}
+		}
+	}
+
+
+	private Path path(final long id, final String suffix)
+	{
+		return directory.resolve(String.format("segment-%010d%s", id, suffix));
+	}
+
+
+	private static long parseId(final String fileName, final String suffix)
+	{
+		return Long.parseLong(fileName.substring("segment-".length(), fileName.length() - suffix.length()));
+	}
+
+
+	private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException
+	{
+		long offset = position;
+		while (buffer.hasRemaining())
+		{
+			int read = channel.read(buffer, offset);
+			if (read < 0)
+			{
+				throw new IOException("Unexpected end of teleport audit file.");
+			}
+			offset += read;
+		}
+		buffer.flip();
+	}
+
+
+	private static void encode(final UsageRecord record, final ByteBuffer buffer)
+	{
+		int start = buffer.position();
+		buffer.putLong(record.timeMillis);
+		buffer.putLong(record.playerUid.getMostSignificantBits());
+		buffer.putLong(record.playerUid.getLeastSignificantBits());
+		buffer.putLong(record.worldUid.getMostSignificantBits());
+		buffer.putLong(record.worldUid.getLeastSignificantBits());
+		buffer.putInt(record.blockX);
+		buffer.putInt(record.blockY);
+		buffer.putInt(record.blockZ);
+		buffer.putLong(record.destinationWorldUid.getMostSignificantBits());
+		buffer.putLong(record.destinationWorldUid.getLeastSignificantBits());
+		buffer.putInt(record.destinationX);
+		buffer.putInt(record.destinationY);
+		buffer.putInt(record.destinationZ);
+		buffer.putInt((int) Math.min(Integer.MAX_VALUE, record.warmupTicks));
+		buffer.put((byte) record.outcome.ordinal());
+
+		byte[] item = (record.itemName == null) ? new byte[0] : record.itemName.getBytes(StandardCharsets.US_ASCII);
+		int itemLength = Math.min(ITEM_LENGTH, item.length);
+		buffer.put((byte) itemLength);
+		buffer.put(item, 0, itemLength);
+
+		// zero fill the rest of the record
+		while (buffer.position() < start + RECORD_SIZE)
+		{
+			buffer.put((byte) 0);
+		}
+	}
+
+
+	private static AuditEntry decode(final ByteBuffer buffer, final int start)
+	{
+		int itemLength = Math.min(ITEM_LENGTH, buffer.get(start + ITEM_OFFSET - 1));
+		byte[] item = new byte[Math.max(0, itemLength)];
+		buffer.get(start + ITEM_OFFSET, item);
+
+		return new AuditEntry(
+				buffer.getLong(start),
+				new UUID(buffer.getLong(start + 8), buffer.getLong(start + 16)),
+				new UUID(buffer.getLong(start + 24), buffer.getLong(start + 32)),
+				buffer.getInt(start + 40),
+				buffer.getInt(start + 44),
+				buffer.getInt(start + 48),
+				new UUID(buffer.getLong(start + 52), buffer.getLong(start + 60)),
+				buffer.getInt(start + 68),
+				buffer.getInt(start + 72),
+				buffer.getInt(start + 76),
+				new String(item, StandardCharsets.US_ASCII),
+				buffer.getInt(start + 80),
+				TeleportOutcome.ofOrdinal(buffer.get(start + 84)));
+	}
+
+
+	/**
+	 * A closed segment, with the block offsets read from its index header
+	 */
+	private record ClosedSegment(long id, int recordCount, long[] blockOffsets)
+	{
+		private long entriesStart()
+		{
+			return INDEX_HEADER_SIZE + (long) Long.BYTES * blockOffsets.length;
+		}
+
+
+		/**
+		 * Binary search the index for the first entry of a player, or the first entry after the player
+		 *
+		 * @param index     the open index file
+		 * @param playerUid the player uuid
+		 * @param after     {@code false} to find the first entry of the player, {@code true} to find the first entry after
+		 * @return the entry position
+		 * @throws IOException if the index could not be read
+		 */
+		private int lowerBound(final FileChannel index, final UUID playerUid, final boolean after) throws IOException
+		{
+			ByteBuffer key = ByteBuffer.allocate(2 * Long.BYTES);
+			int low = 0;
+			int high = recordCount;
+			while (low < high)
+			{
+				int middle = (low + high) >>> 1;
+				key.clear();
+				readFully(index, key, entriesStart() + (long) middle * INDEX_ENTRY_SIZE);
+
+				int comparison = Long.compare(key.getLong(0), playerUid.getMostSignificantBits());
+				if (comparison == 0)
+				{
+					comparison = Long.compare(key.getLong(8), playerUid.getLeastSignificantBits());
+				}
+
+				if (comparison < 0 || (after && comparison == 0))
+				{
+					low = middle + 1;
+				}
+				else
+				{
+					high = middle;
+				}
+			}
+			return low;
+		}
+
+
+		/**
+		 * Read the record number of an index entry
+		 *
+		 * @param index    the open index file
+		 * @param position the entry position
+		 * @return the record number
+		 * @throws IOException if the index could not be read
+		 */
+		private int recordNumber(final FileChannel index, final int position) throws IOException
+		{
+			ByteBuffer buffer = ByteBuffer.allocate(Integer.BYTES);
+			readFully(index, buffer, entriesStart() + (long) position * INDEX_ENTRY_SIZE + 2 * Long.BYTES);
+			return buffer.getInt(0);
+		}
+	}
+
+
+	/**
+	 * Reads records of a closed segment, keeping the most recently inflated block
+	 */
+	private static final class BlockReader
+	{
+		private final ClosedSegment segment;
+		private final FileChannel blocks;
+		private int blockNumber = -1;
+		private ByteBuffer block;
+
+
+		private BlockReader(final ClosedSegment segment, final FileChannel blocks)
+		{
+			this.segment = segment;
+			this.blocks = blocks;
+		}
+
+
+		private AuditEntry read(final int recordNumber) throws IOException
+		{
+			int wanted = recordNumber / BLOCK_RECORDS;
+			if (wanted != blockNumber)
+			{
+				long start = segment.blockOffsets()[wanted];
+				ByteBuffer compressed = ByteBuffer.allocate((int) (segment.blockOffsets()[wanted + 1] - start));
+				readFully(blocks, compressed, start);
+
+				try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed.array())))
+				{
+					block = ByteBuffer.wrap(in.readAllBytes());
+				}
+				blockNumber = wanted;
+			}
+
+			return decode(block, (recordNumber % BLOCK_RECORDS) * RECORD_SIZE);
+		}
+	}
+
+
+	/**
+	 * Growable list of record numbers of one player in the active segment
+	 */
+	private static final class RecordList
+	{
+		private int[] records = new int[4];
+		private int size;
+
+
+		private void add(final int recordNumber)
+		{
+			if (size == records.length)
+			{
+				records = Arrays.copyOf(records, size * 2);
+			}
+			records[size++] = recordNumber;
+		}
+
+
+		private int get(final int position)
+		{
+			return records[position];
+		}
+	}
+
+}
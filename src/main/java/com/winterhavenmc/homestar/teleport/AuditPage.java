@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import java.util.List;
+
+
+/**
+ * A page of a player's teleport history, newest first
+ *
+ * @param page      the page number, starting at one
+ * @param pageCount the number of pages in the player's history
+ * @param total     the number of teleports in the player's history
+ * @param entries   the teleports on this page
+ */
+public record AuditPage(int page, int pageCount, long total, List<AuditEntry> entries)
+{
+	/**
+	 * Create an empty page, for a player with no history or when the history could not be read
+	 *
+	 * @param page the requested page number
+	 * @return an empty page
+	 */
+	static AuditPage empty(final int page)
+	{
+		return new AuditPage(page, 0, 0, List.of());
+	}
+}
@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.UUID;
+
+
+/**
+ * Identifies a chunk by world uid and chunk coordinates
+ *
+ * @param worldUid the uid of the world containing the chunk
+ * @param chunkX   the chunk x coordinate
+ * @param chunkZ   the chunk z coordinate
+ */
+record ChunkKey(UUID worldUid, int chunkX, int chunkZ)
+{
+	/**
+	 * Get the key of a chunk in a world
+	 *
+	 * @param world  the world containing the chunk
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 * @return the chunk key
+	 */
+	static ChunkKey of(final World world, final int chunkX, final int chunkZ)
+	{
+		return new ChunkKey(world.getUID(), chunkX, chunkZ);
+	}
+
+
+	/**
+	 * Get the key of the chunk containing a location
+	 *
+	 * @param location the location, which must have a world
+	 * @return the chunk key
+	 */
+	static ChunkKey of(final Location location)
+	{
+		return of(location.getWorld(), location.getBlockX() >> 4, location.getBlockZ() >> 4);
+	}
+}
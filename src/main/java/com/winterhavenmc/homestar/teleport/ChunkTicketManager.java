@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+
+
+/**
+ * Holds plugin chunk tickets for pending teleport destinations, so a destination chunk stays
+ * loaded for the rest of the warmup once it has been prepared. Tickets are reference counted,
+ * so players heading to the same chunk share a single ticket, which is removed when the last
+ * of their teleports commits or is cancelled.
+ * <p>
+ * This class is not thread safe, and must only be accessed from the server main thread.
+ */
+final class ChunkTicketManager
+{
+	private final Plugin plugin;
+
+	// reference count for each destination chunk that currently holds a ticket
+	private final Map<ChunkKey, Integer> references = new HashMap<>();
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to plugin main class
+	 */
+	ChunkTicketManager(final Plugin plugin)
+	{
+		this.plugin = Objects.requireNonNull(plugin);
+	}
+
+
+	/**
+	 * Add a reference to the ticket for a chunk, adding the ticket if this is the first reference.
+	 * Adding a ticket loads the chunk if it is not already loaded.
+	 *
+	 * @param world  the world of the chunk
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 */
+	void acquire(final World world, final int chunkX, final int chunkZ)
+	{
+		if (references.merge(ChunkKey.of(world, chunkX, chunkZ), 1, Integer::sum) == 1)
+		{
+			world.addPluginChunkTicket(chunkX, chunkZ, plugin);
+		}
+	}
+
+
+	/**
+	 * Remove a reference to the ticket for a chunk, removing the ticket if this was the last reference
+	 *
+	 * @param world  the world of the chunk
+	 * @param chunkX the chunk x coordinate
+	 * @param chunkZ the chunk z coordinate
+	 */
+	void release(final World world, final int chunkX, final int chunkZ)
+	{
+		ChunkKey key = ChunkKey.of(world, chunkX, chunkZ);
+		Integer count = references.get(key);
+
+		if (count == null)
+		{
+			return;
+		}
+
+		if (count > 1)
+		{
+			references.put(key, count - 1);
+		}
+		else
+		{
+			references.remove(key);
+			world.removePluginChunkTicket(chunkX, chunkZ, plugin);
+		}
+	}
+
+
+	/**
+	 * Get the number of chunks that currently hold a ticket
+	 *
+	 * @return the number of active chunk tickets
+	 */
+	int getActiveTickets()
+	{
+		return references.size();
+	}
+
+
+	/**
+	 * Remove all chunk tickets held by this plugin
+	 */
+	void releaseAll()
+	{
+		references.clear();
+		for (World world : plugin.getServer().getWorlds())
+		{
+			world.removePluginChunkTickets(plugin);
+		}
+	}
+}
@@ -0,0 +1,143 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import java.util.logging.Logger;
+import java.util.regex.Pattern;
+
+
+/**
+ * Writes teleport usage records to the plugin logger. Each line is built on the writer thread from the
+ * text of the {@code TELEPORT_LOG_USAGE} message in the language file, which is read when the usage log is
+ * opened or reloaded. The message macros {PLAYER}, {PLAYER.LOCATION.WORLD}, {PLAYER.LOCATION.X},
+ * {PLAYER.LOCATION.Y}, {PLAYER.LOCATION.Z}, {ITEM}, {ITEM.DISPLAY_NAME} and {DESTINATION} are replaced,
+ * and formatting tags are removed, since the line is written to the log as plain text; other text,
+ * including unknown macros, is copied as is. Teleport outcome records are left to the audit log.
+ */
+final class ConsoleUsageSink implements UsageSink
+{
+	// message text used if the language file does not define one
+	static final String DEFAULT_MESSAGE_TEXT =
+			"<aqua>{PLAYER}</aqua> used a <aqua>{ITEM.DISPLAY_NAME}</aqua> in <aqua>{PLAYER.LOCATION.WORLD}</aqua>.";
+
+	// formatting tags, such as <aqua>, </aqua> or <#00ffff>
+	private static final Pattern FORMAT_TAG = Pattern.compile("</?[#!a-zA-Z_][^<>]*>");
+
+	private final Logger logger;
+	private final StringBuilder line = new StringBuilder(128);
+
+	// message text without formatting tags, accessed only by the writer thread
+	private String plainText;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param logger the logger to write usage lines to
+	 */
+	ConsoleUsageSink(final Logger logger)
+	{
+		this.logger = logger;
+		setMessageText(null);
+	}
+
+
+	/**
+	 * Set the message text usage lines are built from. Called only from the writer thread.
+	 *
+	 * @param messageText the message text read from the language file, or null to use the default text
+	 */
+	void setMessageText(final String messageText)
+	{
+		this.plainText = FORMAT_TAG.matcher((messageText != null) ? messageText : DEFAULT_MESSAGE_TEXT).replaceAll("");
+	}
+
+
+	@Override
+	public void write(final UsageRecord record)
+	{
+		if (record.outcome != null)
+		{
+			return;
+		}
+
+		line.setLength(0);
+		int index = 0;
+		while (index < plainText.length())
+		{
+			int open = plainText.indexOf('{', index);
+			int close = (open < 0) ? -1 : plainText.indexOf('}', open + 1);
+			if (close < 0)
+			{
+				line.append(plainText, index, plainText.length());
+				break;
+			}
+
+			line.append(plainText, index, open);
+			if (!appendMacro(plainText.substring(open + 1, close), record))
+			{
+				line.append(plainText, open, close + 1);
+			}
+			index = close + 1;
+		}
+
+		logger.info(line.toString());
+	}
+
+
+	/**
+	 * Append the value of a message macro to the line
+	 *
+	 * @param name   the macro name, without braces
+	 * @param record the record being written
+	 * @return {@code true} if the macro is known, {@code false} if not
+	 */
+	private boolean appendMacro(final String name, final UsageRecord record)
+	{
+		switch (name)
+		{
+			case "PLAYER" -> line.append(record.playerName);
+			case "PLAYER.LOCATION.WORLD" -> line.append(record.worldName);
+			case "PLAYER.LOCATION.X" -> line.append(record.blockX);
+			case "PLAYER.LOCATION.Y" -> line.append(record.blockY);
+			case "PLAYER.LOCATION.Z" -> line.append(record.blockZ);
+			case "ITEM", "ITEM.DISPLAY_NAME" -> line.append(record.itemName);
+			case "DESTINATION" -> line.append(record.destinationName);
+			default ->
+			{
+				return false;
+			}
+		}
+		return true;
+	}
+
+
+	@Override
+	public void flush()
+	{
+		// logger handlers flush each line
+	}
+
+
+	@Override
+	public void close()
+	{
+		// logger is owned by the plugin
+	}
+
+}
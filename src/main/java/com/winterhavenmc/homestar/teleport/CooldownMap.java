@@ -17,46 +17,103 @@
 
 package com.winterhavenmc.homestar.teleport;
 
+import com.winterhavenmc.homestar.PluginMain;
+
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
 
+import java.io.File;
+import java.io.IOException;
 import java.time.Duration;
-import java.time.Instant;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
-
-import static com.winterhavenmc.library.messagebuilder.models.time.TimeUnit.SECONDS;
+import java.util.logging.Level;
 
 
+/**
+ * Stores player cooldown expire times. Expired entries are removed lazily when read,
+ * and in bulk by a single periodic sweep held in the {@link TeleportScheduler}.
+ * If cooldown persistence is enabled, entries are also written through to a
+ * {@link MappedCooldownTable}, which is consulted for players not yet held in memory.
+ * The sweep period and cooldown persistence are applied again when the configuration is reloaded.
+ */
 final class CooldownMap
 {
-	private final JavaPlugin plugin;
+	private final PluginMain plugin;
+	private final TeleportScheduler scheduler;
+
+	// map to store player UUID and cooldown expire time in epoch milliseconds
+	private final UuidLongMap cooldownMap;
+
+	// file backed cooldown table, or null if cooldown persistence is disabled
+	private MappedCooldownTable persistentTable;
+
+	// scheduler handle and period of the periodic sweep
+	private int sweepHandle;
+	private long sweepTicks;
 
-	// hashmap to store player UUID and cooldown expire time in milliseconds
-	private final ConcurrentHashMap<UUID, Instant> cooldownMap;
+	// number of entries evicted by the most recent sweep, and by all sweeps
+	private int lastSweepEvictions;
+	private long totalSweepEvictions;
 
 
-	CooldownMap(final JavaPlugin plugin)
+	CooldownMap(final PluginMain plugin, final TeleportScheduler scheduler)
 	{
 		this.plugin = plugin;
-		cooldownMap = new ConcurrentHashMap<>();
+		this.scheduler = scheduler;
+		cooldownMap = new UuidLongMap();
+		persistentTable = openPersistentTable(plugin);
+
+		// schedule periodic sweep of expired entries
+		scheduleSweep();
+	}
+
+
+	/**
+	 * Apply reloaded settings. The sweep is rescheduled if its period has changed, and the persistent
+	 * table is opened or closed if cooldown persistence has been enabled or disabled.
+	 */
+	void reload()
+	{
+		if (plugin.settings.cooldownSweepTicks() != sweepTicks)
+		{
+			scheduler.cancel(sweepHandle);
+			scheduleSweep();
+		}
+
+		if (plugin.settings.persistCooldowns() && persistentTable == null)
+		{
+			persistentTable = openPersistentTable(plugin);
+		}
+		else if (!plugin.settings.persistCooldowns() && persistentTable != null)
+		{
+			persistentTable.close();
+			persistentTable = null;
+		}
 	}
 
 
 	/**
-	 * Insert player uuid into cooldown hashmap with {@code expiretime} as value.<br>
-	 * Schedule task to remove player uuid from cooldown hashmap when time expires.
+	 * Insert player uuid into cooldown map with expire time as value.<br>
+	 * The entry is removed when it is next read after expiring, or by the periodic sweep.
 	 *
 	 * @param player the player being inserted into the cooldown map
 	 */
 	void startPlayerCooldown(final Player player)
 	{
-		int cooldownSeconds = plugin.getConfig().getInt("teleport-cooldown");
-		Instant expireInstant = Instant.now().plus(Duration.ofSeconds(cooldownSeconds));
-		cooldownMap.put(player.getUniqueId(), expireInstant);
+		long cooldownMillis = plugin.settings.cooldownMillis();
+		long nowMillis = System.currentTimeMillis();
+		UUID playerUid = player.getUniqueId();
 
-		new CooldownExpireTask(player).runTaskLater(plugin, SECONDS.toTicks(cooldownSeconds));
+		cooldownMap.put(playerUid, nowMillis + cooldownMillis);
+
+		// write through to persistent table if enabled; if every slot the player's uuid may occupy holds
+		// an unexpired cooldown, the cooldown is kept in memory only and will not survive a restart
+		if (persistentTable != null
+				&& !persistentTable.put(playerUid.getMostSignificantBits(), playerUid.getLeastSignificantBits(),
+						nowMillis + cooldownMillis, nowMillis))
+		{
+			plugin.getLogger().warning("Cooldown file is full for player " + player.getName()
+					+ ". This cooldown will not persist across a restart.");
+		}
 	}
 
 
@@ -68,43 +125,159 @@ final class CooldownMap
 	 */
 	Duration getCooldownTimeRemaining(final Player player)
 	{
-		if (cooldownMap.containsKey(player.getUniqueId()))
+		long remainingMillis = getRemainingMillis(player);
+		return (remainingMillis > 0L)
+				? Duration.ofMillis(remainingMillis)
+				: Duration.ZERO;
+	}
+
+
+	/**
+	 * Get the number of expired entries evicted by the most recent sweep
+	 *
+	 * @return the number of entries evicted by the last sweep
+	 */
+	int getLastSweepEvictions()
+	{
+		return lastSweepEvictions;
+	}
+
+
+	/**
+	 * Get the number of expired entries evicted by all sweeps since the plugin was enabled
+	 *
+	 * @return the total number of entries evicted by sweeps
+	 */
+	long getTotalSweepEvictions()
+	{
+		return totalSweepEvictions;
+	}
+
+
+	/**
+	 * Get the expire time of a player cooldown, removing the entry if it has expired. A caller that needs
+	 * both the cooldown check and the remaining time can look the player up once with this method.
+	 *
+	 * @param player the player whose cooldown expire time is being retrieved
+	 * @return the expire time in epoch milliseconds, or zero if the player is not cooling down
+	 */
+	long getExpireMillis(final Player player)
+	{
+		UUID playerUid = player.getUniqueId();
+		long expireMillis = cooldownMap.get(playerUid, 0L);
+
+		if (expireMillis == 0L)
+		{
+			return getPersistentExpireMillis(playerUid);
+		}
+
+		if (expireMillis <= System.currentTimeMillis())
 		{
-			Instant expInstant = cooldownMap.get(player.getUniqueId());
-			if (expInstant.isAfter(Instant.now()))
-			{
-				return Duration.between(Instant.now(), expInstant);
-			}
+			// entry has expired, so remove it now rather than waiting for the sweep
+			cooldownMap.remove(playerUid);
+			return 0L;
 		}
 
-		return Duration.ZERO;
+		return expireMillis;
+	}
+
+
+	/**
+	 * Get milliseconds remaining for player cooldown, removing the entry if it has expired
+	 *
+	 * @param player the player whose cooldown time remaining is being retrieved
+	 * @return remaining milliseconds, or zero or less if the player is not cooling down
+	 */
+	private long getRemainingMillis(final Player player)
+	{
+		long expireMillis = getExpireMillis(player);
+		return (expireMillis == 0L) ? 0L : expireMillis - System.currentTimeMillis();
 	}
 
 
 	/**
-	 * Test if player is currently cooling down after item use
+	 * Get the expire time of a player cooldown stored only in the persistent table,
+	 * such as one started before the last restart. An unexpired entry is copied into memory.
 	 *
-	 * @param player the player to check for cooldown
-	 * @return boolean - {@code true} if player is cooling down after item use, {@code false} if not
+	 * @param playerUid the uuid of the player whose cooldown expire time is being retrieved
+	 * @return the expire time in epoch milliseconds, or zero if the player is not cooling down
 	 */
-	boolean isCoolingDown(final Player player)
+	private long getPersistentExpireMillis(final UUID playerUid)
 	{
-		return getCooldownTimeRemaining(player).isPositive();
+		if (persistentTable == null)
+		{
+			return 0L;
+		}
+
+		long expireMillis = persistentTable.get(playerUid.getMostSignificantBits(), playerUid.getLeastSignificantBits());
+		if (expireMillis == 0L || expireMillis <= System.currentTimeMillis())
+		{
+			return 0L;
+		}
+
+		cooldownMap.put(playerUid, expireMillis);
+		return expireMillis;
 	}
 
 
-	private class CooldownExpireTask extends BukkitRunnable
+	/**
+	 * Flush and close the persistent cooldown table, if enabled
+	 */
+	void close()
 	{
-		private final Player player;
+		if (persistentTable != null)
+		{
+			persistentTable.close();
+			persistentTable = null;
+		}
+	}
+
 
-		public CooldownExpireTask(Player player)
+	/**
+	 * Open the persistent cooldown table if cooldown persistence is enabled in config
+	 *
+	 * @param plugin reference to plugin main class
+	 * @return the mapped cooldown table, or null if disabled or the file could not be mapped
+	 */
+	private static MappedCooldownTable openPersistentTable(final PluginMain plugin)
+	{
+		if (!plugin.settings.persistCooldowns())
 		{
-			this.player = player;
+			return null;
 		}
 
-		public void run()
+		try
 		{
-			cooldownMap.remove(player.getUniqueId());
+			return MappedCooldownTable.open(new File(plugin.getDataFolder(), "cooldowns.dat").toPath());
 		}
+		catch (IOException e)
+		{
+			plugin.getLogger().log(Level.WARNING, "Could not open cooldown file. Cooldowns will not persist.", e);
+			return null;
+		}
+	}
+
+
+	/**
+	 * Schedule the periodic sweep with the configured period
+	 */
+	private void scheduleSweep()
+	{
+		sweepTicks = plugin.settings.cooldownSweepTicks();
+		sweepHandle = scheduler.schedule(sweepTicks, sweepTicks, this::sweep);
 	}
+
+
+	/**
+	 * Remove all expired entries from the cooldown map
+	 */
+	private void sweep()
+	{
+		final long now = System.currentTimeMillis();
+		int evicted = cooldownMap.removeIf(expireMillis -> expireMillis <= now);
+
+		lastSweepEvictions = evicted;
+		totalSweepEvictions += evicted;
+	}
+
 }
@@ -18,143 +18,379 @@
 package com.winterhavenmc.homestar.teleport;
 
 import com.winterhavenmc.homestar.PluginMain;
+import com.winterhavenmc.homestar.util.HomeStarSettings;
+import com.winterhavenmc.homestar.util.HomeStarUtility;
 import com.winterhavenmc.homestar.util.Macro;
 import com.winterhavenmc.homestar.util.MessageId;
 import com.winterhavenmc.homestar.util.SoundId;
 
 import org.bukkit.Location;
+import org.bukkit.World;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.scheduler.BukkitRunnable;
-import org.bukkit.scheduler.BukkitTask;
 
 import java.util.Objects;
+import java.util.Optional;
 
 
 /**
- * Class that extends BukkitRunnable to teleport a player to their home location
- * after a configured warmup period.
+ * Class that implements Runnable to teleport a player to their home location
+ * after a configured warmup period. Instances are held as entries in the {@link TeleportScheduler},
+ * and are committed by a {@link TeleportCommitBatch} at the end of the tick in which they fall due.
  */
-final class DelayedTeleportTask extends BukkitRunnable
+final class DelayedTeleportTask implements Runnable
 {
+	// ticks between destination readiness checks while warmup is extended
+	private static final long RECHECK_TICKS = 2L;
+
 	// reference to main class
 	private final PluginMain plugin;
 
+	// scheduler that holds this task
+	private final TeleportScheduler scheduler;
+
+	// batch in which this teleport is committed when it falls due
+	private final TeleportCommitBatch commitBatch;
+
 	// player being teleported
 	private final Player player;
 
-	// teleport destination
-	private final Location destination;
+	// teleport destination, replaced by a moved respawn destination or a safe landing spot
+	private Location destination;
 
-	// teleport destination display name
-	private final String destinationName;
-
-	// particle task
-	private BukkitTask particleTask;
+	// teleport destination display name, replaced by the spawn name if the teleport falls back to spawn
+	private String destinationName;
 
 	// HomeStar item used by player
 	private final ItemStack playerItem;
 
+	// destination chunk preparation request
+	private final DestinationChunkLoader.Request destinationRequest;
+
+	// safe landing search for destination
+	private final SafeLandingResolver.Landing landing;
+
+	// true if destination is a cached respawn location that must be validated before commit
+	private final boolean respawnDestination;
+
+	// ticks the warmup has been extended while waiting for destination chunk
+	private long extendedTicks;
+
+	// player location and scheduler tick when the teleport was initiated, recorded in the audit log
+	private final Location origin;
+	private final long startTick;
+
+	// true once the outcome of this teleport has been recorded
+	private boolean audited;
+
 
 	/**
 	 * Class constructor method
 	 *
-	 * @param player          the player to be teleported
-	 * @param destination     location where player will be teleported
-	 * @param destinationName the configured name of the teleport destination
-	 * @param playerItem      the item used to initiate teleport
+	 * @param scheduler          the scheduler that holds the task
+	 * @param commitBatch        the batch in which the teleport is committed
+	 * @param player             the player to be teleported
+	 * @param destination        location where player will be teleported
+	 * @param destinationName    the configured name of the teleport destination
+	 * @param playerItem         the item used to initiate teleport
+	 * @param destinationRequest the preparation request for the destination chunk
+	 * @param landing            the safe landing search for the destination
+	 * @param respawnDestination {@code true} if destination is a cached player respawn location
 	 */
 	DelayedTeleportTask(final PluginMain plugin,
+	                    final TeleportScheduler scheduler,
+	                    final TeleportCommitBatch commitBatch,
 	                    final Player player,
 	                    final Location destination,
 	                    final String destinationName,
-	                    final ItemStack playerItem)
+	                    final ItemStack playerItem,
+	                    final DestinationChunkLoader.Request destinationRequest,
+	                    final SafeLandingResolver.Landing landing,
+	                    final boolean respawnDestination)
 	{
 		// check for null parameters
 		this.plugin = Objects.requireNonNull(plugin);
+		this.scheduler = Objects.requireNonNull(scheduler);
+		this.commitBatch = Objects.requireNonNull(commitBatch);
 		this.player = Objects.requireNonNull(player);
 		this.destination = Objects.requireNonNull(destination);
 		this.destinationName = Objects.requireNonNull(destinationName);
 		this.playerItem = Objects.requireNonNull(playerItem);
+		this.destinationRequest = Objects.requireNonNull(destinationRequest);
+		this.landing = Objects.requireNonNull(landing);
+		this.respawnDestination = respawnDestination;
+		this.origin = player.getLocation();
+		this.startTick = scheduler.getCurrentTick();
+	}
 
-		// start repeating task for generating particles at player location
-		if (plugin.getConfig().getBoolean("particle-effects"))
-		{
 
-			// start particle task with 2 tick delay, so it doesn't self cancel on first run
-			particleTask = new ParticleTask(plugin, player).runTaskTimer(plugin, 2L, 10);
+	@Override
+	public void run()
+	{
+		// if player is no longer in warmup map, release resources and do nothing
+		if (!plugin.teleportHandler.isWarmingUp(player))
+		{
+			cancel();
+			return;
 		}
+
+		// add teleport to the batch committed at the end of this tick
+		commitBatch.add(this);
 	}
 
 
-	@Override
-	public void run()
+	/**
+	 * Get the key of the destination chunk, used to group teleports in a commit batch
+	 *
+	 * @return the destination chunk key
+	 */
+	ChunkKey chunkKey()
 	{
-		// cancel particles task
-		particleTask.cancel();
+		return destinationRequest.chunkKey();
+	}
 
-		// if player is in warmup map
-		if (plugin.teleportHandler.isWarmingUp(player))
-		{
-			// remove player from warmup map
-			plugin.teleportHandler.removeWarmingUpPlayer(player);
 
-			// get remove-from-inventory config setting
-			String removeFromInventory = plugin.getConfig().getString("remove-from-inventory");
+	/**
+	 * Get the player being teleported
+	 *
+	 * @return the player being teleported
+	 */
+	Player getPlayer()
+	{
+		return player;
+	}
 
-			// check for null
-			if (removeFromInventory == null)
-			{
-				removeFromInventory = "on-success";
-			}
 
-			// if remove-from-inventory is configured on-success, take one spawn star item from inventory now
-			if (removeFromInventory.equalsIgnoreCase("on-success"))
+	/**
+	 * Get the teleport destination
+	 *
+	 * @return the teleport destination
+	 */
+	Location getDestination()
+	{
+		return destination;
+	}
+
+
+	/**
+	 * Check if the player has left the warmup map since this task fell due, such as by moving while queued
+	 *
+	 * @return {@code true} if the teleport was cancelled, {@code false} if it is still pending
+	 */
+	boolean isAbandoned()
+	{
+		return !plugin.teleportHandler.isWarmingUp(player);
+	}
+
+
+	/**
+	 * Tell the player that their teleport is waiting for a later tick
+	 *
+	 * @param position the position of the teleport in the admission queue
+	 */
+	void notifyQueued(final int position)
+	{
+		plugin.messageBuilder.compose(player, MessageId.TELEPORT_QUEUED)
+				.setMacro(Macro.DESTINATION, destinationName)
+				.setMacro(Macro.COUNT, position)
+				.send();
+	}
+
+
+	/**
+	 * Check if the destination chunk is loaded and held by a chunk ticket
+	 *
+	 * @return {@code true} if the destination is ready, {@code false} if not
+	 */
+	boolean isDestinationReady()
+	{
+		return destinationRequest.isReady();
+	}
+
+
+	/**
+	 * Commit the teleport if the player is still in the warmup map, then release resources held by this task
+	 *
+	 * @param removeOnSuccess {@code true} if one HomeStar item is taken from inventory when the teleport succeeds
+	 * @return {@code true} if the player was teleported, {@code false} if not
+	 */
+	boolean commit(final boolean removeOnSuccess)
+	{
+		// player may have been removed from warmup map by an earlier commit in the same batch
+		boolean teleported = plugin.teleportHandler.isWarmingUp(player) && teleport(removeOnSuccess);
+
+		// release destination chunk ticket, now that the player has arrived or the teleport has failed
+		cancel();
+
+		return teleported;
+	}
+
+
+	/**
+	 * Remove player from warmup map, take HomeStar item if configured, and teleport player to destination
+	 *
+	 * @param removeOnSuccess {@code true} if one HomeStar item is taken from inventory
+	 * @return {@code true} if the player was teleported, {@code false} if not
+	 */
+	private boolean teleport(final boolean removeOnSuccess)
+	{
+		// remove player from warmup map
+		plugin.teleportHandler.removeWarmingUpPlayer(player);
+
+		// validate cached respawn destination, now that the chunk holding the bed or anchor is loaded
+		if (respawnDestination)
+		{
+			Optional<Location> respawnLocation = plugin.teleportHandler.getRespawnCache().validate(player);
+
+			// if bed or anchor is gone and bedspawn-fallback is configured, send player to spawn as when the teleport is initiated
+			if (respawnLocation.isEmpty() && plugin.settings.bedspawnFallback())
 			{
-				// try to remove one HomeStar item from player inventory
-				boolean notRemoved = true;
-				for (ItemStack itemStack : player.getInventory())
+				respawnLocation = getFallbackSpawn();
+				if (respawnLocation.isPresent())
 				{
-					if (playerItem.isSimilar(itemStack))
-					{
-						ItemStack removeItem = itemStack.clone();
-						removeItem.setAmount(1);
-						player.getInventory().removeItem(removeItem);
-						notRemoved = false;
-						break;
-					}
+					destinationName = plugin.messageBuilder.constants().getString(HomeStarUtility.SPAWN_KEY).orElse(destinationName);
 				}
+			}
 
-				// if one HomeStar item could not be removed from inventory, send message, set cooldown and return
-				if (notRemoved)
-				{
-					plugin.messageBuilder.compose(player, MessageId.TELEPORT_CANCELLED_NO_ITEM).send();
-					plugin.teleportHandler.startPlayerCooldown(player);
-					return;
-				}
+			if (respawnLocation.isEmpty())
+			{
+				audit(TeleportOutcome.NO_BEDSPAWN);
+				plugin.messageBuilder.compose(player, MessageId.TELEPORT_CANCELLED_NO_BEDSPAWN)
+						.setMacro(Macro.DESTINATION, destinationName)
+						.send();
+				return false;
+			}
+			destination = respawnLocation.get();
+		}
+
+		// if remove-from-inventory is configured on-success, take one spawn star item from inventory now
+		if (removeOnSuccess)
+		{
+			// try to remove one HomeStar item from player inventory, using tracked slots before a full scan
+			// if one HomeStar item could not be removed from inventory, send message, set cooldown and return
+			if (!plugin.teleportHandler.getItemSlotIndex().consume(player, playerItem))
+			{
+				audit(TeleportOutcome.NO_ITEM);
+				plugin.messageBuilder.compose(player, MessageId.TELEPORT_CANCELLED_NO_ITEM).send();
+				plugin.teleportHandler.startPlayerCooldown(player);
+				return false;
 			}
+		}
+
+		// play pre-teleport sound if sound effects are enabled
+		plugin.messageBuilder.sounds().play(player, SoundId.TELEPORT_SUCCESS_DEPARTURE);
+
+		// use safe landing spot found during warmup, if the destination has not moved
+		destination = landing.getLocation(destination);
 
-			// play pre-teleport sound if sound effects are enabled
-			plugin.messageBuilder.sounds().play(player, SoundId.TELEPORT_SUCCESS_DEPARTURE);
+		// teleport player to destination
+		player.teleport(destination);
+		audit(TeleportOutcome.SUCCESS);
 
-			// teleport player to destination
-			player.teleport(destination);
+		// send player respawn message
+		plugin.messageBuilder.compose(player, MessageId.TELEPORT_SUCCESS).setMacro(Macro.DESTINATION, destinationName).send();
 
-			// send player respawn message
-			plugin.messageBuilder.compose(player, MessageId.TELEPORT_SUCCESS).setMacro(Macro.DESTINATION, destinationName).send();
+		// set player cooldown
+		plugin.teleportHandler.startPlayerCooldown(player);
+
+		return true;
+	}
 
-			// play post-teleport sound if sound effects are enabled
-			plugin.messageBuilder.sounds().play(player, SoundId.TELEPORT_SUCCESS_ARRIVAL);
 
-			// if lightning is enabled in config, strike lightning at spawn location
-			if (plugin.getConfig().getBoolean("lightning"))
+	/**
+	 * Get the spawn location used when the player's bed spawn is missing. As for a spawn teleport, the spawn
+	 * of the paired overworld is used if the player is in a nether or end world and so configured.
+	 * The spawn chunk is not prepared during warmup, so it may be loaded when the player is teleported.
+	 *
+	 * @return the fallback spawn location wrapped in an {@link Optional}
+	 */
+	private Optional<Location> getFallbackSpawn()
+	{
+		World world = player.getWorld();
+		SpawnCache spawnCache = plugin.teleportHandler.getSpawnCache();
+
+		if ((world.getEnvironment() == World.Environment.NETHER && plugin.settings.fromNether())
+				|| (world.getEnvironment() == World.Environment.THE_END && plugin.settings.fromEnd()))
+		{
+			Optional<Location> overworldSpawn = spawnCache.get(plugin.teleportHandler.getWorldPairIndex().getOverworldUid(world));
+			if (overworldSpawn.isPresent())
 			{
-				player.getWorld().strikeLightningEffect(destination);
+				return overworldSpawn;
 			}
+		}
+
+		return spawnCache.get(world.getUID());
+	}
+
 
-			// set player cooldown
-			plugin.teleportHandler.startPlayerCooldown(player);
+	/**
+	 * Release resources held by this task when its teleport is cancelled during warmup
+	 */
+	void cancel()
+	{
+		cancel(TeleportOutcome.CANCELLED);
+	}
+
+
+	/**
+	 * Release resources held by this task, recording the reason in the audit log if no outcome has been recorded
+	 *
+	 * @param outcome the reason the teleport was cancelled
+	 */
+	void cancel(final TeleportOutcome outcome)
+	{
+		audit(outcome);
+		destinationRequest.release();
+	}
+
+
+	/**
+	 * Record the outcome of this teleport in the audit log, once, if the audit log is enabled
+	 *
+	 * @param outcome the outcome of the teleport
+	 */
+	private void audit(final TeleportOutcome outcome)
+	{
+		if (audited)
+		{
+			return;
 		}
+		audited = true;
+
+		if (plugin.settings.auditLog())
+		{
+			plugin.teleportHandler.getUsageLog().recordOutcome(player, origin, destination,
+					playerItem.getType().name(), scheduler.getCurrentTick() - startTick, outcome);
+		}
+	}
+
+
+	/**
+	 * Extend the warmup while the destination chunk is being prepared. When the configured timeout
+	 * has passed, either cancel the teleport or let it commit, according to the configured action.
+	 *
+	 * @return {@code true} if the teleport was deferred or cancelled, {@code false} if it should commit now
+	 */
+	boolean deferUntilReady()
+	{
+		if (extendedTicks < plugin.settings.destinationTimeoutTicks())
+		{
+			extendedTicks += RECHECK_TICKS;
+			plugin.teleportHandler.extendWarmingUp(player, scheduler.schedule(RECHECK_TICKS, this));
+			return true;
+		}
+
+		if (plugin.settings.destinationTimeoutAction() == HomeStarSettings.TimeoutAction.CANCEL)
+		{
+			cancel(TeleportOutcome.DESTINATION_TIMEOUT);
+			plugin.teleportHandler.removeWarmingUpPlayer(player);
+			plugin.messageBuilder.compose(player, MessageId.TELEPORT_CANCELLED_DESTINATION_TIMEOUT)
+					.setMacro(Macro.DESTINATION, destinationName)
+					.send();
+			return true;
+		}
+
+		return false;
 	}
 
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import com.winterhavenmc.homestar.PluginMain;
+import com.winterhavenmc.homestar.util.MessageId;
+
+import org.bukkit.entity.Player;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+
+/**
+ * Limits how often a player is sent the same denial message, such as the cooldown message sent on
+ * every click while a player holds the use button. Each player has a token bucket for each denial
+ * message, holding up to {@link #BURST} tokens and refilled with one token per configured interval.
+ * A message is composed and sent only when a token is available. Repeats suppressed while the bucket
+ * is empty are coalesced into one trailing message, sent when the next token is available, so the
+ * player still sees the latest state once they stop clicking.
+ * <p>
+ * Buckets are kept as theoretical arrival ticks, so a bucket is a single long value, and refill
+ * needs no timer. This class is not thread safe, and must only be accessed from the server main thread.
+ */
+final class DenialThrottle
+{
+	// number of messages that may be sent back to back before the interval applies
+	static final int BURST = 2;
+
+	// number of throttled denial messages; see slotOf
+	private static final int SLOT_COUNT = 4;
+
+	private final PluginMain plugin;
+	private final TeleportScheduler scheduler;
+
+	// map of player uuid to the buckets of that player
+	private final Map<UUID, Buckets> playerBuckets = new HashMap<>();
+
+	// number of messages suppressed, and number of trailing messages sent for suppressed repeats
+	private long suppressed;
+	private long coalesced;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin    reference to plugin main class
+	 * @param scheduler the scheduler that provides the tick clock and sends trailing messages
+	 */
+	DenialThrottle(final PluginMain plugin, final TeleportScheduler scheduler)
+	{
+		this.plugin = Objects.requireNonNull(plugin);
+		this.scheduler = Objects.requireNonNull(scheduler);
+	}
+
+
+	/**
+	 * Send a denial message to a player if their bucket for the message has a token, or coalesce it
+	 * into a trailing message if not. The sender is only run when the message is actually sent.
+	 * Messages other than the throttled denial messages are sent immediately.
+	 *
+	 * @param player    the player to send the message to
+	 * @param messageId the id of the denial message
+	 * @param sender    action that composes and sends the message
+	 */
+	void send(final Player player, final MessageId messageId, final Runnable sender)
+	{
+		long intervalTicks = plugin.settings.denialIntervalTicks();
+		int index = slotOf(messageId);
+		if (intervalTicks <= 0 || index < 0)
+		{
+			sender.run();
+			return;
+		}
+
+		Buckets buckets = playerBuckets.computeIfAbsent(player.getUniqueId(), uid -> new Buckets());
+
+		long waitTicks = buckets.take(index, scheduler.getCurrentTick(), intervalTicks);
+		if (waitTicks == 0)
+		{
+			sender.run();
+			return;
+		}
+
+		// keep only the latest suppressed message, and send it when the next token is available
+		suppressed++;
+		buckets.trailing[index] = sender;
+		if (!scheduler.isScheduled(buckets.trailingHandles[index]))
+		{
+			buckets.trailingHandles[index] = scheduler.schedule(waitTicks, () -> sendTrailing(player, buckets, index));
+		}
+	}
+
+
+	/**
+	 * Discard the buckets of a player, and any trailing messages waiting to be sent
+	 *
+	 * @param player the player
+	 */
+	void forget(final Player player)
+	{
+		Buckets buckets = playerBuckets.remove(player.getUniqueId());
+		if (buckets != null)
+		{
+			for (int handle : buckets.trailingHandles)
+			{
+				scheduler.cancel(handle);
+			}
+		}
+	}
+
+
+	/**
+	 * Get the number of denial messages suppressed by a player's bucket
+	 *
+	 * @return the number of suppressed messages
+	 */
+	long getSuppressed()
+	{
+		return suppressed;
+	}
+
+
+	/**
+	 * Get the number of trailing messages sent in place of suppressed repeats
+	 *
+	 * @return the number of coalesced messages
+	 */
+	long getCoalesced()
+	{
+		return coalesced;
+	}
+
+
+	/**
+	 * Get the bucket slot of a denial message
+	 *
+	 * @param messageId the message id
+	 * @return the bucket slot, or -1 if the message is not throttled
+	 */
+	private static int slotOf(final MessageId messageId)
+	{
+		return switch (messageId)
+		{
+			case TELEPORT_COOLDOWN -> 0;
+			case TELEPORT_DENIED_WORLD_DISABLED -> 1;
+			case TELEPORT_FAIL_PERMISSION -> 2;
+			case TELEPORT_FAIL_SHIFT_CLICK -> 3;
+			default -> -1;
+		};
+	}
+
+
+	private void sendTrailing(final Player player, final Buckets buckets, final int index)
+	{
+		Runnable sender = buckets.trailing[index];
+		buckets.trailing[index] = null;
+		buckets.trailingHandles[index] = TeleportScheduler.NO_HANDLE;
+
+		if (sender != null && player.isOnline())
+		{
+			buckets.take(index, scheduler.getCurrentTick(), plugin.settings.denialIntervalTicks());
+			coalesced++;
+			sender.run();
+		}
+	}
+
+
+	/**
+	 * Token buckets of one player, indexed by denial message slot
+	 */
+	private static final class Buckets
+	{
+		// tick at which each bucket would be full again if no further tokens were taken
+		private final long[] fullAt = new long[SLOT_COUNT];
+
+		// latest suppressed message for each bucket, and the handle of its trailing send
+		private final Runnable[] trailing = new Runnable[SLOT_COUNT];
+		private final int[] trailingHandles = new int[SLOT_COUNT];
+
+
+		private Buckets()
+		{
+			Arrays.fill(trailingHandles, TeleportScheduler.NO_HANDLE);
+		}
+
+
+		/**
+		 * Take a token from a bucket if one is available
+		 *
+		 * @param index         the denial message slot
+		 * @param nowTick       the current tick
+		 * @param intervalTicks the ticks to refill one token
+		 * @return zero if a token was taken, or the ticks until a token is available
+		 */
+		private long take(final int index, final long nowTick, final long intervalTicks)
+		{
+			long start = Math.max(fullAt[index], nowTick);
+			long waitTicks = start - nowTick - (BURST - 1) * intervalTicks;
+			if (waitTicks > 0)
+			{
+				return waitTicks;
+			}
+
+			fullAt[index] = start + intervalTicks;
+			return 0;
+		}
+	}
+
+}
@@ -0,0 +1,317 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import com.winterhavenmc.homestar.PluginMain;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.util.ArrayDeque;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.logging.Level;
+
+
+/**
+ * Prepares teleport destination chunks while players warm up, so the chunk is loaded before
+ * the teleport commits. If the server provides an asynchronous chunk API, it is used to load
+ * the chunk off the main thread. Otherwise, requests are queued and loaded on the main thread
+ * a few per tick, so a burst of teleports does not load every destination in the same tick.
+ * Once loaded, each destination holds a chunk ticket until its request is released.
+ */
+final class DestinationChunkLoader implements Runnable
+{
+	// World#getChunkAtAsync(int, int), if provided by the server; null if not
+	private static final MethodHandle GET_CHUNK_AT_ASYNC = findAsyncChunkMethod();
+
+	private final PluginMain plugin;
+	private final ChunkTicketManager ticketManager;
+
+	// requests waiting to be loaded by the main thread fallback
+	private final Queue<Request> pending = new ArrayDeque<>();
+
+	// true once the asynchronous chunk API has thrown, after which only the main thread fallback is used
+	private boolean asyncFailed;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin        reference to plugin main class
+	 * @param scheduler     scheduler that will drive the main thread fallback
+	 * @param ticketManager manager for destination chunk tickets
+	 */
+	DestinationChunkLoader(final PluginMain plugin, final TeleportScheduler scheduler, final ChunkTicketManager ticketManager)
+	{
+		this.plugin = Objects.requireNonNull(plugin);
+		this.ticketManager = Objects.requireNonNull(ticketManager);
+		scheduler.schedule(1L, 1L, this);
+	}
+
+
+	/**
+	 * Begin preparing the chunk at a destination location
+	 *
+	 * @param location the destination location
+	 * @return a request that reports when the destination chunk is ready
+	 */
+	Request prepare(final Location location)
+	{
+		Request request = new Request(Objects.requireNonNull(location.getWorld()),
+				location.getBlockX() >> 4, location.getBlockZ() >> 4);
+
+		if (request.isLoaded())
+		{
+			request.hold();
+		}
+		else if (!requestAsync(request))
+		{
+			pending.add(request);
+		}
+
+		return request;
+	}
+
+
+	/**
+	 * Load queued destination chunks, up to the configured number per tick
+	 */
+	@Override
+	public void run()
+	{
+		int budget = plugin.settings.destinationLoadsPerTick();
+
+		while (budget > 0 && !pending.isEmpty())
+		{
+			Request request = pending.poll();
+			if (request.released)
+			{
+				continue;
+			}
+
+			if (!request.isLoaded())
+			{
+				budget--;
+			}
+
+			// adding the chunk ticket loads the chunk
+			request.hold();
+		}
+	}
+
+
+	/**
+	 * Request the chunk through the server asynchronous chunk API, if available
+	 *
+	 * @param request the destination request
+	 * @return {@code true} if the asynchronous request was made, {@code false} if not available or it has failed
+	 */
+	private boolean requestAsync(final Request request)
+	{
+		if (GET_CHUNK_AT_ASYNC == null || asyncFailed)
+		{
+			return false;
+		}
+
+		CompletableFuture<?> future;
+		try
+		{
+			future = (CompletableFuture<?>) GET_CHUNK_AT_ASYNC.invoke(request.world, request.chunkX, request.chunkZ);
+		}
+		catch (RuntimeException e)
+		{
+			// stop using the asynchronous API after it has failed once, and load destinations on the main thread
+			asyncFailed = true;
+			plugin.getLogger().log(Level.WARNING, "Asynchronous chunk loading failed. "
+					+ "Destination chunks will be loaded on the main thread.", e);
+			return false;
+		}
+		catch (Throwable e)
+		{
+			// World#getChunkAtAsync declares no checked exceptions, so anything else is not recoverable here
+			throw (e instanceof Error error) ? error : new IllegalStateException(e);
+		}
+
+		future.whenComplete((chunk, throwable) -> onMainThread(() ->
+		{
+			if (throwable == null)
+			{
+				request.hold();
+			}
+			else
+			{
+				// fall back to loading on main thread
+				pending.add(request);
+			}
+		}));
+		return true;
+	}
+
+
+	private void onMainThread(final Runnable action)
+	{
+		if (plugin.getServer().isPrimaryThread())
+		{
+			action.run();
+		}
+		else
+		{
+			plugin.getServer().getScheduler().runTask(plugin, action);
+		}
+	}
+
+
+	private static MethodHandle findAsyncChunkMethod()
+	{
+		try
+		{
+			return MethodHandles.publicLookup().findVirtual(World.class, "getChunkAtAsync",
+					MethodType.methodType(CompletableFuture.class, int.class, int.class));
+		}
+		catch (NoSuchMethodException | IllegalAccessException e)
+		{
+			return null;
+		}
+	}
+
+
+	/**
+	 * A request to prepare a destination chunk. A request holds a reference to the chunk ticket
+	 * from the time the chunk is loaded until the request is released.
+	 */
+	final class Request
+	{
+		private final World world;
+		private final int chunkX;
+		private final int chunkZ;
+		private boolean ticketHeld;
+		private boolean released;
+		private Runnable readyAction;
+
+
+		private Request(final World world, final int chunkX, final int chunkZ)
+		{
+			this.world = world;
+			this.chunkX = chunkX;
+			this.chunkZ = chunkZ;
+		}
+
+
+		/**
+		 * Check if the destination chunk has been prepared and is currently loaded
+		 *
+		 * @return {@code true} if the destination chunk is ready, {@code false} if not
+		 */
+		boolean isReady()
+		{
+			return ticketHeld && isLoaded();
+		}
+
+
+		/**
+		 * Run an action on the main thread once the destination chunk is ready, or now if it is already ready.
+		 * The action is not run if the request is released first. Only one action may be registered.
+		 *
+		 * @param action the action to run
+		 */
+		void whenReady(final Runnable action)
+		{
+			if (isReady())
+			{
+				action.run();
+			}
+			else
+			{
+				readyAction = action;
+			}
+		}
+
+
+		/**
+		 * Get the world of the destination chunk
+		 *
+		 * @return the destination world
+		 */
+		World getWorld()
+		{
+			return world;
+		}
+
+
+		/**
+		 * Get the key of the destination chunk
+		 *
+		 * @return the destination chunk key
+		 */
+		ChunkKey chunkKey()
+		{
+			return ChunkKey.of(world, chunkX, chunkZ);
+		}
+
+
+		/**
+		 * Release the chunk ticket held for this request, or stop preparing the chunk if it
+		 * has not yet been loaded. Called when the teleport commits or is cancelled.
+		 */
+		void release()
+		{
+			if (released)
+			{
+				return;
+			}
+
+			released = true;
+			readyAction = null;
+			if (ticketHeld)
+			{
+				ticketHeld = false;
+				ticketManager.release(world, chunkX, chunkZ);
+			}
+		}
+
+
+		private void hold()
+		{
+			if (!released && !ticketHeld)
+			{
+				ticketHeld = true;
+				ticketManager.acquire(world, chunkX, chunkZ);
+
+				// adding the ticket has loaded the chunk, so run any action waiting for it
+				if (readyAction != null)
+				{
+					Runnable action = readyAction;
+					readyAction = null;
+					action.run();
+				}
+			}
+		}
+
+
+		private boolean isLoaded()
+		{
+			return world.isChunkLoaded(chunkX, chunkZ);
+		}
+	}
+
+}
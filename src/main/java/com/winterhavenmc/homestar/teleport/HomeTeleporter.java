@@ -68,12 +68,14 @@ final class HomeTeleporter extends AbstractTeleporter implements Teleporter
 	 */
 	void fallbackToSpawn(final Player player)
 	{
-		if (plugin.getConfig().getBoolean("bedspawn-fallback"))
+		if (plugin.settings.bedspawnFallback())
 		{
+			// resolve spawn destination once, and pass it directly to the spawn teleporter
 			plugin.messageBuilder.constants().getString(HomeStarUtility.SPAWN_KEY)
-					.ifPresent(homeName -> getSpawnDestination(player)
-							.ifPresentOrElse(location -> new SpawnTeleporter(plugin, teleportExecutor).initiate(player),
-									() -> sendInvalidDestinationMessage(player, homeName)
+					.ifPresent(spawnName -> getSpawnDestination(player)
+							.ifPresentOrElse(location -> new SpawnTeleporter(plugin, teleportExecutor)
+											.execute(player, location, spawnName, player.getInventory().getItemInMainHand()),
+									() -> sendInvalidDestinationMessage(player, spawnName)
 			));
 		}
 		else
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.PlayerInventory;
+
+
+/**
+ * Tracks which player inventory slots are known to hold HomeStar items, as a bit mask per player,
+ * so one item can be taken by checking and decrementing a single slot instead of scanning the whole
+ * inventory. Slots are recorded when a player uses an item from their main hand, when they select a
+ * slot holding an item, when they pick up an item, and by any full scan. A player's mask is discarded when their inventory is
+ * rearranged by a click, drag, drop or hand swap. Every tracked slot is verified before it is used,
+ * and a full scan is made if no tracked slot still holds a matching item.
+ * <p>
+ * This class is not thread safe, and must only be accessed from the server main thread.
+ */
+final class ItemSlotIndex
+{
+	// player inventory slots, including armor and off hand, fit in the bits of a long
+	private static final int MAX_SLOTS = Long.SIZE;
+
+	// map of player uuid to bit mask of slots known to hold HomeStar items
+	private final UuidLongMap slotMasks = new UuidLongMap();
+
+
+	/**
+	 * Record a slot as holding a HomeStar item
+	 *
+	 * @param player the player
+	 * @param slot   the inventory slot index
+	 */
+	void track(final Player player, final int slot)
+	{
+		if (slot >= 0 && slot < MAX_SLOTS)
+		{
+			slotMasks.put(player.getUniqueId(), slotMasks.get(player.getUniqueId(), 0L) | (1L << slot));
+		}
+	}
+
+
+	/**
+	 * Record the slots that may receive a HomeStar item being picked up. The item has not yet been added
+	 * to the inventory, so every slot holding a similar stack with room is recorded, and the first empty slot.
+	 *
+	 * @param player    the player
+	 * @param itemStack the item being picked up
+	 */
+	void trackPickup(final Player player, final ItemStack itemStack)
+	{
+		PlayerInventory inventory = player.getInventory();
+		long mask = slotMasks.get(player.getUniqueId(), 0L);
+
+		ItemStack[] contents = inventory.getContents();
+		for (int slot = 0; slot < contents.length && slot < MAX_SLOTS; slot++)
+		{
+			if (itemStack.isSimilar(contents[slot]) && contents[slot].getAmount() < contents[slot].getMaxStackSize())
+			{
+				mask |= 1L << slot;
+			}
+		}
+
+		int emptySlot = inventory.firstEmpty();
+		if (emptySlot >= 0 && emptySlot < MAX_SLOTS)
+		{
+			mask |= 1L << emptySlot;
+		}
+
+		store(player, mask);
+	}
+
+
+	/**
+	 * Discard the tracked slots of a player
+	 *
+	 * @param player the player
+	 */
+	void invalidate(final Player player)
+	{
+		slotMasks.remove(player.getUniqueId());
+	}
+
+
+	/**
+	 * Take one item matching a HomeStar item from a player inventory
+	 *
+	 * @param player     the player
+	 * @param playerItem the item used to initiate the teleport
+	 * @return {@code true} if an item was taken, {@code false} if the player has no matching item
+	 */
+	boolean consume(final Player player, final ItemStack playerItem)
+	{
+		PlayerInventory inventory = player.getInventory();
+		long mask = slotMasks.get(player.getUniqueId(), 0L);
+
+		// check tracked slots, dropping any that no longer hold a matching item
+		while (mask != 0L)
+		{
+			int slot = Long.numberOfTrailingZeros(mask);
+			ItemStack itemStack = inventory.getItem(slot);
+
+			if (playerItem.isSimilar(itemStack))
+			{
+				if (!decrement(inventory, slot, itemStack))
+				{
+					mask &= ~(1L << slot);
+				}
+				store(player, mask);
+				return true;
+			}
+
+			mask &= ~(1L << slot);
+		}
+
+		// no tracked slot holds a matching item, so fall back to a full scan, recording every match
+		ItemStack[] contents = inventory.getContents();
+		int consumedSlot = -1;
+		for (int slot = 0; slot < contents.length && slot < MAX_SLOTS; slot++)
+		{
+			if (playerItem.isSimilar(contents[slot]))
+			{
+				if (consumedSlot == -1)
+				{
+					consumedSlot = slot;
+					if (!decrement(inventory, slot, contents[slot]))
+					{
+						continue;
+					}
+				}
+				mask |= 1L << slot;
+			}
+		}
+
+		store(player, mask);
+		return consumedSlot != -1;
+	}
+
+
+	/**
+	 * Take one item from a slot
+	 *
+	 * @return {@code true} if the slot still holds an item, {@code false} if it is now empty
+	 */
+	private static boolean decrement(final PlayerInventory inventory, final int slot, final ItemStack itemStack)
+	{
+		int remaining = itemStack.getAmount() - 1;
+		if (remaining > 0)
+		{
+			ItemStack updated = itemStack.clone();
+			updated.setAmount(remaining);
+			inventory.setItem(slot, updated);
+			return true;
+		}
+
+		inventory.setItem(slot, null);
+		return false;
+	}
+
+
+	private void store(final Player player, final long mask)
+	{
+		if (mask == 0L)
+		{
+			slotMasks.remove(player.getUniqueId());
+		}
+		else
+		{
+			slotMasks.put(player.getUniqueId(), mask);
+		}
+	}
+
+}
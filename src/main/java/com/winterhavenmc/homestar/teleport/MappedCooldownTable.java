@@ -0,0 +1,302 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+
+/**
+ * A fixed-size cooldown table stored in a memory-mapped file, so player cooldowns survive
+ * server restarts and reloads. Slots are addressed by hashing the player UUID and probed
+ * linearly within a bounded window, and are read and written directly through the mapping,
+ * so there is no serialization on update and no parsing pass when the file is opened.
+ * <p>
+ * Each slot holds the two halves of the player UUID, the cooldown expire time in epoch
+ * milliseconds, and a check word derived from the other three fields. The check word is
+ * cleared before a slot is rewritten and set last, so a slot that was only partly written
+ * when the server crashed fails verification and is treated as free.
+ * <p>
+ * This class is not thread safe, and must only be accessed from the server main thread.
+ */
+final class MappedCooldownTable
+{
+	// file header: magic, format version, slot count
+	private static final long MAGIC = 0x4853434F4F4C444EL; // "HSCOOLDN"
+	private static final int VERSION = 1;
+	private static final int HEADER_BYTES = 64;
+	private static final int MAGIC_OFFSET = 0;
+	private static final int VERSION_OFFSET = 8;
+	private static final int SLOT_COUNT_OFFSET = 12;
+
+	// slot layout
+	private static final int SLOT_BYTES = 32;
+	private static final int MSB_OFFSET = 0;
+	private static final int LSB_OFFSET = 8;
+	private static final int EXPIRE_OFFSET = 16;
+	private static final int CHECK_OFFSET = 24;
+
+	// number of slots in a newly created file; must be a power of two
+	static final int DEFAULT_SLOT_COUNT = 16384;
+
+	// maximum number of slots examined for any key
+	private static final int MAX_PROBE = 32;
+
+	private final MappedByteBuffer buffer;
+	private final int mask;
+	private boolean closed;
+
+
+	private MappedCooldownTable(final MappedByteBuffer buffer, final int slotCount)
+	{
+		this.buffer = buffer;
+		this.mask = slotCount - 1;
+	}
+
+
+	/**
+	 * Map a cooldown table file, creating or replacing it if it does not hold a valid table
+	 *
+	 * @param path the path of the table file
+	 * @return the mapped cooldown table
+	 * @throws IOException if the file could not be created or mapped
+	 */
+	static MappedCooldownTable open(final Path path) throws IOException
+	{
+		Files.createDirectories(path.toAbsolutePath().getParent());
+
+		try (FileChannel channel = FileChannel.open(path,
+				StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			int slotCount = readSlotCount(channel);
+			boolean valid = slotCount > 0;
+			if (!valid)
+			{
+				slotCount = DEFAULT_SLOT_COUNT;
+				channel.truncate(0L);
+			}
+
+			long fileBytes = HEADER_BYTES + (long) slotCount * SLOT_BYTES;
+			MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0L, fileBytes);
+
+			if (!valid)
+			{
+				buffer.putLong(MAGIC_OFFSET, MAGIC);
+				buffer.putInt(VERSION_OFFSET, VERSION);
+				buffer.putInt(SLOT_COUNT_OFFSET, slotCount);
+				buffer.force();
+			}
+
+			return new MappedCooldownTable(buffer, slotCount);
+		}
+	}
+
+
+	/**
+	 * Get the stored cooldown expire time for a player
+	 *
+	 * @param msb the most significant bits of the player uuid
+	 * @param lsb the least significant bits of the player uuid
+	 * @return the expire time in epoch milliseconds, or zero if no valid entry is stored
+	 */
+	long get(final long msb, final long lsb)
+	{
+		int home = hash(msb, lsb);
+		for (int probe = 0; probe < MAX_PROBE; probe++)
+		{
+			int offset = offsetOf((home + probe) & mask);
+
+			if (isEmpty(offset))
+			{
+				return 0L;
+			}
+
+			if (isValid(offset)
+					&& buffer.getLong(offset + MSB_OFFSET) == msb
+					&& buffer.getLong(offset + LSB_OFFSET) == lsb)
+			{
+				return buffer.getLong(offset + EXPIRE_OFFSET);
+			}
+		}
+		return 0L;
+	}
+
+
+	/**
+	 * Store the cooldown expire time for a player, replacing any existing entry.
+	 * Slots holding expired or partly written entries are reused.
+	 *
+	 * @param msb          the most significant bits of the player uuid
+	 * @param lsb          the least significant bits of the player uuid
+	 * @param expireMillis the expire time in epoch milliseconds
+	 * @param nowMillis    the current time in epoch milliseconds
+	 * @return {@code true} if the entry was stored, {@code false} if the probe window was full
+	 */
+	boolean put(final long msb, final long lsb, final long expireMillis, final long nowMillis)
+	{
+		int home = hash(msb, lsb);
+		int reusable = -1;
+
+		for (int probe = 0; probe < MAX_PROBE; probe++)
+		{
+			int offset = offsetOf((home + probe) & mask);
+
+			if (isEmpty(offset))
+			{
+				if (reusable < 0)
+				{
+					reusable = offset;
+				}
+				break;
+			}
+
+			if (!isValid(offset))
+			{
+				if (reusable < 0)
+				{
+					reusable = offset;
+				}
+				continue;
+			}
+
+			if (buffer.getLong(offset + MSB_OFFSET) == msb && buffer.getLong(offset + LSB_OFFSET) == lsb)
+			{
+				write(offset, msb, lsb, expireMillis);
+				return true;
+			}
+
+			if (reusable < 0 && buffer.getLong(offset + EXPIRE_OFFSET) <= nowMillis)
+			{
+				reusable = offset;
+			}
+		}
+
+		if (reusable < 0)
+		{
+			return false;
+		}
+
+		write(reusable, msb, lsb, expireMillis);
+		return true;
+	}
+
+
+	/**
+	 * Flush modified pages of the mapping to the storage device
+	 */
+	void flush()
+	{
+		buffer.force();
+	}
+
+
+	/**
+	 * Flush the table to storage and stop using it. A mapped buffer cannot be unmapped explicitly,
+	 * so the mapping is released when the closed table is no longer referenced.
+	 */
+	void close()
+	{
+		if (!closed)
+		{
+			closed = true;
+			buffer.force();
+		}
+	}
+
+
+	private void write(final int offset, final long msb, final long lsb, final long expireMillis)
+	{
+		// clear check word first, so an interrupted write can never verify
+		buffer.putLong(offset + CHECK_OFFSET, 0L);
+		buffer.putLong(offset + MSB_OFFSET, msb);
+		buffer.putLong(offset + LSB_OFFSET, lsb);
+		buffer.putLong(offset + EXPIRE_OFFSET, expireMillis);
+		buffer.putLong(offset + CHECK_OFFSET, check(msb, lsb, expireMillis));
+	}
+
+
+	private boolean isEmpty(final int offset)
+	{
+		return buffer.getLong(offset + MSB_OFFSET) == 0L
+				&& buffer.getLong(offset + LSB_OFFSET) == 0L
+				&& buffer.getLong(offset + CHECK_OFFSET) == 0L;
+	}
+
+
+	private boolean isValid(final int offset)
+	{
+		long check = buffer.getLong(offset + CHECK_OFFSET);
+		return check != 0L && check == check(buffer.getLong(offset + MSB_OFFSET),
+				buffer.getLong(offset + LSB_OFFSET),
+				buffer.getLong(offset + EXPIRE_OFFSET));
+	}
+
+
+	private int offsetOf(final int slot)
+	{
+		return HEADER_BYTES + slot * SLOT_BYTES;
+	}
+
+
+	private static int readSlotCount(final FileChannel channel) throws IOException
+	{
+		if (channel.size() < HEADER_BYTES)
+		{
+			return 0;
+		}
+
+		ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+		while (header.hasRemaining() && channel.read(header, header.position()) > 0)
+		{
+			// read until header buffer is full
+		}
+
+		int slotCount = header.getInt(SLOT_COUNT_OFFSET);
+
+		boolean valid = header.getLong(MAGIC_OFFSET) == MAGIC
+				&& header.getInt(VERSION_OFFSET) == VERSION
+				&& slotCount > 0
+				&& Integer.bitCount(slotCount) == 1
+				&& channel.size() == HEADER_BYTES + (long) slotCount * SLOT_BYTES;
+
+		return valid ? slotCount : 0;
+	}
+
+
+	private static int hash(final long msb, final long lsb)
+	{
+		long h = (msb ^ lsb) * 0x9E3779B97F4A7C15L;
+		return (int) (h ^ (h >>> 32));
+	}
+
+
+	private static long check(final long msb, final long lsb, final long expireMillis)
+	{
+		long h = msb * 0xC2B2AE3D27D4EB4FL;
+		h = Long.rotateLeft(h ^ lsb, 31) * 0x9E3779B97F4A7C15L;
+		h = Long.rotateLeft(h ^ expireMillis, 27) * 0x165667B19E3779F9L;
+		h ^= h >>> 29;
+		return (h == 0L) ? 1L : h;
+	}
+
+}
@@ -0,0 +1,158 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import com.winterhavenmc.homestar.PluginMain;
+import com.winterhavenmc.homestar.util.HomeStarSettings;
+import com.winterhavenmc.homestar.util.MessageId;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+
+/**
+ * Cancels warmups of players who have moved, with one sweep per tick over the warming up players,
+ * instead of a check for every player move packet. Each player's block position and rotation are
+ * recorded when their warmup starts, and compared with their current position by the sweep.
+ * A player may move within the configured tolerance radius, and rotation is ignored if configured.
+ * <p>
+ * This class is not thread safe, and must only be accessed from the server main thread.
+ */
+final class MovementSweep implements Runnable
+{
+	// smallest change in yaw or pitch, in degrees, counted as rotation
+	private static final float ROTATION_EPSILON = 0.5f;
+
+	private final PluginMain plugin;
+
+	// map of player uuid to position recorded when warmup started
+	private final Map<UUID, Anchor> anchors = new HashMap<>();
+
+	// reusable location for reading player positions
+	private final Location scratch = new Location(null, 0, 0, 0);
+
+	// reusable list of players whose warmup is cancelled by the current sweep
+	private final List<Player> moved = new ArrayList<>();
+
+
+	/**
+	 * Class constructor. Schedules the sweep to run every tick.
+	 *
+	 * @param plugin    reference to plugin main class
+	 * @param scheduler the scheduler that will run the sweep
+	 */
+	MovementSweep(final PluginMain plugin, final TeleportScheduler scheduler)
+	{
+		this.plugin = Objects.requireNonNull(plugin);
+		scheduler.schedule(1L, 1L, this);
+	}
+
+
+	/**
+	 * Record the position of a player whose warmup is starting, if cancel-on-movement is enabled
+	 *
+	 * @param player the player
+	 */
+	void track(final Player player)
+	{
+		if (plugin.settings.cancelOnMovement())
+		{
+			Location location = player.getLocation(scratch);
+			anchors.put(player.getUniqueId(), new Anchor(player, location.getWorld(),
+					location.getBlockX(), location.getBlockY(), location.getBlockZ(),
+					location.getYaw(), location.getPitch()));
+		}
+	}
+
+
+	/**
+	 * Stop tracking a player whose warmup has ended
+	 *
+	 * @param player the player
+	 */
+	void untrack(final Player player)
+	{
+		anchors.remove(player.getUniqueId());
+	}
+
+
+	/**
+	 * Cancel the warmup of each tracked player who has moved since their warmup started
+	 */
+	@Override
+	public void run()
+	{
+		if (anchors.isEmpty())
+		{
+			return;
+		}
+
+		HomeStarSettings settings = plugin.settings;
+		for (Anchor anchor : anchors.values())
+		{
+			if (anchor.hasMoved(anchor.player().getLocation(scratch), settings))
+			{
+				moved.add(anchor.player());
+			}
+		}
+
+		// cancel after iterating, since cancelling a teleport stops tracking the player
+		for (Player player : moved)
+		{
+			plugin.teleportHandler.cancelTeleport(player, TeleportOutcome.CANCELLED_MOVEMENT);
+			plugin.messageBuilder.compose(player, MessageId.TELEPORT_CANCELLED_MOVEMENT).send();
+		}
+		moved.clear();
+	}
+
+
+	/**
+	 * Position of a player when their warmup started
+	 */
+	private record Anchor(Player player, World world, int blockX, int blockY, int blockZ, float yaw, float pitch)
+	{
+		boolean hasMoved(final Location location, final HomeStarSettings settings)
+		{
+			if (location.getWorld() != world)
+			{
+				return true;
+			}
+
+			int dx = location.getBlockX() - blockX;
+			int dy = location.getBlockY() - blockY;
+			int dz = location.getBlockZ() - blockZ;
+			if (dx * dx + dy * dy + dz * dz > settings.movementToleranceSquared())
+			{
+				return true;
+			}
+
+			return !settings.ignoreRotation()
+					&& (Math.abs(location.getYaw() - yaw) > ROTATION_EPSILON
+					|| Math.abs(location.getPitch() - pitch) > ROTATION_EPSILON);
+		}
+	}
+
+}
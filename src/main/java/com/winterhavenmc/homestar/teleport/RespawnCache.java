@@ -0,0 +1,127 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.entity.Player;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+
+
+/**
+ * Caches player respawn locations, so the bed or respawn anchor is not validated on the click path.
+ * The server validates the respawn block each time a respawn location is requested, which may load
+ * the chunk holding it, so entries are filled on first use and kept until the spawn changes, the
+ * respawn block is broken, its world is unloaded, or the player quits. A cached destination is
+ * validated again by {@link #validate(Player)} when its chunk has been loaded during warmup.
+ * <p>
+ * This class is not thread safe, and must only be accessed from the server main thread.
+ */
+final class RespawnCache
+{
+	// respawn locations are next to the bed or anchor, so entries within this distance of a broken block are removed
+	private static final double BLOCK_RADIUS_SQUARED = 9.0;
+
+	// map of player uuid to respawn location, or empty if the player has no valid respawn location
+	private final Map<UUID, Optional<Location>> respawnLocations = new HashMap<>();
+
+
+	/**
+	 * Get the respawn location of a player, from the cache if present
+	 *
+	 * @param player the player
+	 * @return a copy of the player respawn location wrapped in an {@link Optional}
+	 */
+	Optional<Location> get(final Player player)
+	{
+		return respawnLocations.computeIfAbsent(player.getUniqueId(), uuid -> Optional.ofNullable(player.getRespawnLocation()))
+				.map(Location::clone);
+	}
+
+
+	/**
+	 * Get the respawn location of a player from the server, validating the respawn block, and update the cache
+	 *
+	 * @param player the player
+	 * @return a copy of the player respawn location wrapped in an {@link Optional}
+	 */
+	Optional<Location> validate(final Player player)
+	{
+		Optional<Location> respawnLocation = Optional.ofNullable(player.getRespawnLocation());
+		respawnLocations.put(player.getUniqueId(), respawnLocation);
+		return respawnLocation.map(Location::clone);
+	}
+
+
+	/**
+	 * Check if a location is the cached respawn location of a player
+	 *
+	 * @param player   the player
+	 * @param location the location to check
+	 * @return {@code true} if the location equals the cached respawn location, {@code false} if not
+	 */
+	boolean isRespawnLocation(final Player player, final Location location)
+	{
+		Optional<Location> respawnLocation = respawnLocations.get(player.getUniqueId());
+		return respawnLocation != null && respawnLocation.isPresent() && respawnLocation.get().equals(location);
+	}
+
+
+	/**
+	 * Remove the cached respawn location of a player
+	 *
+	 * @param player the player
+	 */
+	void invalidate(final Player player)
+	{
+		respawnLocations.remove(player.getUniqueId());
+	}
+
+
+	/**
+	 * Remove cached respawn locations next to a block, such as a bed or respawn anchor that was broken
+	 *
+	 * @param block the block
+	 */
+	void invalidate(final Block block)
+	{
+		Location blockLocation = block.getLocation().add(0.5, 0.5, 0.5);
+
+		respawnLocations.values().removeIf(respawnLocation -> respawnLocation.isPresent()
+				&& block.getWorld().equals(respawnLocation.get().getWorld())
+				&& respawnLocation.get().distanceSquared(blockLocation) <= BLOCK_RADIUS_SQUARED);
+	}
+
+
+	/**
+	 * Remove cached respawn locations in a world, such as one being unloaded
+	 *
+	 * @param world the world
+	 */
+	void invalidate(final World world)
+	{
+		respawnLocations.values().removeIf(respawnLocation -> respawnLocation.isPresent()
+				&& world.equals(respawnLocation.get().getWorld()));
+	}
+
+}
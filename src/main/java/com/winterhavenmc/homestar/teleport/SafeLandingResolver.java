@@ -0,0 +1,237 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import com.winterhavenmc.homestar.PluginMain;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+
+import java.util.Objects;
+
+
+/**
+ * Finds a safe landing spot near a teleport destination without using main thread time. When the
+ * destination chunk is ready, a {@link ChunkSnapshot} is taken on the main thread, and the snapshot
+ * is searched on an asynchronous task for a spot with solid, harmless ground and room for the player
+ * to stand. The main thread sees only the finished location, which is published through a volatile field.
+ * <p>
+ * The search is limited to the destination chunk, since only its snapshot is taken. A destination that
+ * is already safe, or for which no safe spot is found, is used exactly as given; only a spot the search
+ * moved to is centered on its block, if configured.
+ */
+final class SafeLandingResolver
+{
+	private final PluginMain plugin;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to plugin main class
+	 */
+	SafeLandingResolver(final PluginMain plugin)
+	{
+		this.plugin = Objects.requireNonNull(plugin);
+	}
+
+
+	/**
+	 * Begin resolving a safe landing spot for a destination, once its chunk is ready
+	 *
+	 * @param destination        the teleport destination
+	 * @param destinationRequest the preparation request for the destination chunk
+	 * @return the landing, which holds the resolved location when the search has finished
+	 */
+	Landing resolve(final Location destination, final DestinationChunkLoader.Request destinationRequest)
+	{
+		Landing landing = new Landing(destination.clone(),
+				plugin.settings.safeLandingRadius(),
+				plugin.settings.centerOnBlock());
+
+		// if safe landing is disabled, the destination is used as returned by the server
+		if (landing.radius > 0)
+		{
+			destinationRequest.whenReady(() -> landing.start(plugin, destinationRequest.getWorld()));
+		}
+
+		return landing;
+	}
+
+
+	/**
+	 * A safe landing search for one destination
+	 */
+	static final class Landing
+	{
+		private final Location destination;
+		private final int radius;
+		private final boolean centerOnBlock;
+
+		// resolved landing location, written once by the search task
+		private volatile Location result;
+
+
+		private Landing(final Location destination, final int radius, final boolean centerOnBlock)
+		{
+			this.destination = destination;
+			this.radius = Math.max(0, radius);
+			this.centerOnBlock = centerOnBlock;
+		}
+
+
+		/**
+		 * Get the landing location for the destination
+		 *
+		 * @param destination the destination the teleport will use
+		 * @return the resolved landing location if the search has finished for this destination,
+		 * otherwise the destination itself
+		 */
+		Location getLocation(final Location destination)
+		{
+			Location resolved = result;
+			if (resolved != null && this.destination.equals(destination))
+			{
+				return resolved.clone();
+			}
+
+			return destination;
+		}
+
+
+		/**
+		 * Take a snapshot of the destination chunk on the main thread, and search it on an asynchronous task
+		 *
+		 * @param plugin reference to plugin main class
+		 * @param world  the destination world
+		 */
+		private void start(final PluginMain plugin, final World world)
+		{
+			ChunkSnapshot snapshot = world.getChunkAt(destination.getBlockX() >> 4, destination.getBlockZ() >> 4)
+					.getChunkSnapshot(false, false, false);
+			int minHeight = world.getMinHeight();
+			int maxHeight = world.getMaxHeight();
+
+			plugin.getServer().getScheduler().runTaskAsynchronously(plugin,
+					() -> result = search(snapshot, minHeight, maxHeight));
+		}
+
+
+		/**
+		 * Search the snapshot for the nearest safe spot, checking the destination first, then each ring
+		 * of columns around it, trying heights alternately above and below the destination height
+		 *
+		 * @return the landing location
+		 */
+		private Location search(final ChunkSnapshot snapshot, final int minHeight, final int maxHeight)
+		{
+			int originX = destination.getBlockX();
+			int originY = destination.getBlockY();
+			int originZ = destination.getBlockZ();
+
+			if (isSafe(snapshot, originX & 15, originY, originZ & 15, minHeight, maxHeight))
+			{
+				return destination;
+			}
+
+			for (int ring = 1; ring <= radius; ring++)
+			{
+				for (int dx = -ring; dx <= ring; dx++)
+				{
+					for (int dz = -ring; dz <= ring; dz++)
+					{
+						// only columns on the edge of the current ring
+						if (Math.abs(dx) != ring && Math.abs(dz) != ring)
+						{
+							continue;
+						}
+
+						int x = (originX & 15) + dx;
+						int z = (originZ & 15) + dz;
+						if (x < 0 || x > 15 || z < 0 || z > 15)
+						{
+							continue;
+						}
+
+						for (int step = 0; step <= radius * 2; step++)
+						{
+							int y = originY + ((step & 1) == 0 ? step >> 1 : -((step + 1) >> 1));
+							if (isSafe(snapshot, x, y, z, minHeight, maxHeight))
+							{
+								return moveTo(originX + dx, y, originZ + dz);
+							}
+						}
+					}
+				}
+			}
+
+			// no safe spot found, so keep destination as returned by the server
+			return destination;
+		}
+
+
+		private static boolean isSafe(final ChunkSnapshot snapshot, final int x, final int y, final int z,
+		                              final int minHeight, final int maxHeight)
+		{
+			if (y - 1 < minHeight || y + 1 >= maxHeight)
+			{
+				return false;
+			}
+
+			Material ground = snapshot.getBlockType(x, y - 1, z);
+			return ground.isSolid()
+					&& !isHazard(ground)
+					&& isPassable(snapshot.getBlockType(x, y, z))
+					&& isPassable(snapshot.getBlockType(x, y + 1, z));
+		}
+
+
+		// water is passable, so a destination on a dock or beach is not moved
+		private static boolean isPassable(final Material material)
+		{
+			return !material.isSolid() && !isHazard(material);
+		}
+
+
+		private static boolean isHazard(final Material material)
+		{
+			return switch (material)
+			{
+				case LAVA, FIRE, SOUL_FIRE, MAGMA_BLOCK, CAMPFIRE, SOUL_CAMPFIRE, CACTUS,
+				     SWEET_BERRY_BUSH, WITHER_ROSE, POWDER_SNOW, POINTED_DRIPSTONE -> true;
+				default -> false;
+			};
+		}
+
+
+		/**
+		 * Get the location of a safe spot found by the search, centered on its block if configured,
+		 * otherwise at the same offset within the block as the destination
+		 */
+		private Location moveTo(final int blockX, final int blockY, final int blockZ)
+		{
+			double offsetX = centerOnBlock ? 0.5 : destination.getX() - destination.getBlockX();
+			double offsetZ = centerOnBlock ? 0.5 : destination.getZ() - destination.getBlockZ();
+			return new Location(destination.getWorld(), blockX + offsetX, blockY, blockZ + offsetZ,
+					destination.getYaw(), destination.getPitch());
+		}
+	}
+
+}
@@ -0,0 +1,128 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import com.winterhavenmc.homestar.PluginMain;
+
+import org.bukkit.Location;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.UUID;
+
+
+/**
+ * Caches world spawn locations resolved by the message builder world manager, which may call into
+ * Multiverse or another world management plugin. Each world spawn is resolved once and held until
+ * the spawn changes, the world is loaded or unloaded, or the configuration is reloaded.
+ * Callers receive a copy of the cached location, so the cached snapshot is never modified.
+ * <p>
+ * This class is not thread safe, and must only be accessed from the server main thread.
+ */
+final class SpawnCache
+{
+	private final PluginMain plugin;
+
+	// map of world uid to spawn location, or empty if the world has no spawn location
+	private final Map<UUID, Optional<Location>> spawnLocations = new HashMap<>();
+
+	// lookup counters
+	private long hits;
+	private long misses;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin reference to plugin main class
+	 */
+	SpawnCache(final PluginMain plugin)
+	{
+		this.plugin = Objects.requireNonNull(plugin);
+	}
+
+
+	/**
+	 * Get the spawn location of a world, from the cache if present
+	 *
+	 * @param worldUid the uid of the world
+	 * @return a copy of the world spawn location wrapped in an {@link Optional}
+	 */
+	Optional<Location> get(final UUID worldUid)
+	{
+		Optional<Location> spawnLocation = spawnLocations.get(worldUid);
+
+		if (spawnLocation != null)
+		{
+			hits++;
+		}
+		else
+		{
+			misses++;
+			spawnLocation = plugin.messageBuilder.worlds().spawnLocation(worldUid).map(Location::clone);
+			spawnLocations.put(worldUid, spawnLocation);
+		}
+
+		return spawnLocation.map(Location::clone);
+	}
+
+
+	/**
+	 * Remove the cached spawn location of a world
+	 *
+	 * @param worldUid the uid of the world
+	 */
+	void invalidate(final UUID worldUid)
+	{
+		spawnLocations.remove(worldUid);
+	}
+
+
+	/**
+	 * Remove all cached spawn locations
+	 */
+	void clear()
+	{
+		spawnLocations.clear();
+	}
+
+
+	/**
+	 * Get the number of lookups answered from the cache
+	 *
+	 * @return the number of cache hits
+	 */
+	long getHits()
+	{
+		return hits;
+	}
+
+
+	/**
+	 * Get the number of lookups resolved through the world manager
+	 *
+	 * @return the number of cache misses
+	 */
+	long getMisses()
+	{
+		return misses;
+	}
+
+}
@@ -62,14 +62,9 @@ final class SpawnTeleporter extends AbstractTeleporter implements Teleporter
 	{
 		Location finalDestination = location;
 
-		// if from-nether is enabled in config and player is in nether, try to get overworld spawn location
-		if (plugin.getConfig().getBoolean("from-nether") && isInNetherWorld(player))
-		{
-			finalDestination = getOverworldSpawnLocation(player).orElse(finalDestination);
-		}
-
-		// if from-end is enabled in config and player is in end, try to get overworld spawn location
-		else if (plugin.getConfig().getBoolean("from-end") && isInEndWorld(player))
+		// if player is in nether with from-nether enabled, or in end with from-end enabled, try to get overworld spawn location
+		if ((isInNetherWorld(player) && plugin.settings.fromNether())
+				|| (isInEndWorld(player) && plugin.settings.fromEnd()))
 		{
 			finalDestination = getOverworldSpawnLocation(player).orElse(finalDestination);
 		}
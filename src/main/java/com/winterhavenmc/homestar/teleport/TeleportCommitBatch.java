@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import com.winterhavenmc.homestar.PluginMain;
+import com.winterhavenmc.homestar.util.HomeStarSettings;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+
+/**
+ * Collects the teleports that fall due in a tick and commits them together at the end of the tick.
+ * Teleports still waiting for their destination chunk are deferred before admission, so they do not
+ * use the budget of the {@link AdmissionController}, which defers teleports over the per-tick budget.
+ * Admitted teleports are grouped by destination chunk, and arrival effects are passed to
+ * {@link ArrivalEffects}, which merges the effects of players arriving at the same block.
+ * Config settings used by every commit are read once per batch.
+ * <p>
+ * This class is not thread safe, and must only be accessed from the server main thread.
+ */
+final class TeleportCommitBatch implements Runnable
+{
+	private final PluginMain plugin;
+	private final AdmissionController admissionController;
+	private final ArrivalEffects arrivalEffects;
+
+	// teleports that have fallen due in the current tick, in the order they fell due
+	private final List<DelayedTeleportTask> pending = new ArrayList<>();
+
+	// reusable list of teleports admitted for commit in the current tick
+	private final List<DelayedTeleportTask> admitted = new ArrayList<>();
+
+	// reusable grouping of pending teleports by destination chunk
+	private final Map<ChunkKey, List<DelayedTeleportTask>> groups = new HashMap<>();
+
+
+	/**
+	 * Class constructor. Registers the batch to be committed at the end of every scheduler tick.
+	 *
+	 * @param plugin              reference to plugin main class
+	 * @param scheduler           the scheduler whose due teleports are batched
+	 * @param admissionController the controller that limits commits per tick
+	 * @param arrivalEffects      the dispatcher of arrival lightning and sounds
+	 */
+	TeleportCommitBatch(final PluginMain plugin,
+	                    final TeleportScheduler scheduler,
+	                    final AdmissionController admissionController,
+	                    final ArrivalEffects arrivalEffects)
+	{
+		this.plugin = Objects.requireNonNull(plugin);
+		this.admissionController = Objects.requireNonNull(admissionController);
+		this.arrivalEffects = Objects.requireNonNull(arrivalEffects);
+		scheduler.onTickEnd(this);
+	}
+
+
+	/**
+	 * Add a due teleport to the batch for the current tick
+	 *
+	 * @param task the teleport task that has fallen due
+	 */
+	void add(final DelayedTeleportTask task)
+	{
+		pending.add(task);
+	}
+
+
+	/**
+	 * Commit queued teleports and teleports added in the current tick, up to the admission budget
+	 */
+	@Override
+	public void run()
+	{
+		admissionController.beginTick();
+
+		// queued teleports are admitted before those that fell due in this tick
+		admissionController.admitQueued(admitted);
+		for (DelayedTeleportTask task : pending)
+		{
+			// if destination chunk is not ready, extend warmup without using the budget for this tick
+			if (!task.isDestinationReady() && task.deferUntilReady())
+			{
+				continue;
+			}
+
+			if (admissionController.tryAdmit(task))
+			{
+				admitted.add(task);
+			}
+		}
+		pending.clear();
+
+		if (admitted.isEmpty())
+		{
+			return;
+		}
+
+		// group admitted teleports by destination chunk, preserving order within each group
+		for (DelayedTeleportTask task : admitted)
+		{
+			groups.computeIfAbsent(task.chunkKey(), key -> new ArrayList<>(4)).add(task);
+		}
+		admitted.clear();
+
+		// read settings shared by all commits in this batch
+		HomeStarSettings settings = plugin.settings;
+		boolean removeOnSuccess = settings.removeFromInventory() == HomeStarSettings.RemoveMode.ON_SUCCESS;
+
+		for (List<DelayedTeleportTask> group : groups.values())
+		{
+			commitGroup(group, removeOnSuccess, settings);
+		}
+		groups.clear();
+	}
+
+
+	/**
+	 * Commit a group of teleports with the same destination chunk
+	 *
+	 * @param group           the teleports in the group
+	 * @param removeOnSuccess {@code true} if an item is taken from inventory when the teleport succeeds
+	 * @param settings        the settings read for this batch
+	 */
+	private void commitGroup(final List<DelayedTeleportTask> group, final boolean removeOnSuccess, final HomeStarSettings settings)
+	{
+		// all tasks in the group share a destination chunk, so check its readiness once;
+		// a teleport admitted after its destination timeout may still be waiting for its chunk
+		boolean ready = group.getFirst().isDestinationReady();
+
+		for (DelayedTeleportTask task : group)
+		{
+			// if destination chunk is not ready, extend warmup until it is or until timeout
+			if (!ready && task.deferUntilReady())
+			{
+				continue;
+			}
+
+			if (task.commit(removeOnSuccess))
+			{
+				arrivalEffects.arrive(task.getPlayer(), task.getDestination(), settings);
+			}
+		}
+	}
+
+}
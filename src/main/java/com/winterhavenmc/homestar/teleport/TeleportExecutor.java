@@ -18,35 +18,50 @@
 package com.winterhavenmc.homestar.teleport;
 
 import com.winterhavenmc.homestar.PluginMain;
+import com.winterhavenmc.homestar.util.HomeStarSettings;
 import com.winterhavenmc.homestar.util.Macro;
 import com.winterhavenmc.homestar.util.MessageId;
 
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.scheduler.BukkitTask;
 
 import java.time.Duration;
 
-import static com.winterhavenmc.library.messagebuilder.models.time.TimeUnit.SECONDS;
-
 
 class TeleportExecutor
 {
 	protected final PluginMain plugin;
 	protected final WarmupMap warmupMap;
+	protected final TeleportScheduler scheduler;
+	protected final DestinationChunkLoader chunkLoader;
+	protected final TeleportCommitBatch commitBatch;
+	protected final SafeLandingResolver safeLandingResolver;
 
 
 	/**
 	 * Class constructor
 	 *
-	 * @param plugin    reference to plugin main class
-	 * @param warmupMap player warmup map
+	 * @param plugin              reference to plugin main class
+	 * @param warmupMap           player warmup map
+	 * @param scheduler           teleport scheduler
+	 * @param chunkLoader         destination chunk loader
+	 * @param commitBatch         batch in which due teleports are committed
+	 * @param safeLandingResolver resolver for safe landing spots at destinations
 	 */
-	TeleportExecutor(final PluginMain plugin, final WarmupMap warmupMap)
+	TeleportExecutor(final PluginMain plugin,
+	                 final WarmupMap warmupMap,
+	                 final TeleportScheduler scheduler,
+	                 final DestinationChunkLoader chunkLoader,
+	                 final TeleportCommitBatch commitBatch,
+	                 final SafeLandingResolver safeLandingResolver)
 	{
 		this.plugin = plugin;
 		this.warmupMap = warmupMap;
+		this.scheduler = scheduler;
+		this.chunkLoader = chunkLoader;
+		this.commitBatch = commitBatch;
+		this.safeLandingResolver = safeLandingResolver;
 	}
 
 
@@ -79,24 +94,41 @@ class TeleportExecutor
 			return;
 		}
 
+		// copy item before one is taken on use, since taking the last item of a stack leaves it empty
+		ItemStack usedItem = playerItem.clone();
+
 		// if remove-from-inventory is configured on-use, take one LodeStar item from inventory now
 		removeFromInventoryOnUse(player, playerItem);
 
+		// record main hand slot as holding a HomeStar item, for removal on success without a full inventory scan
+		plugin.teleportHandler.getItemSlotIndex().track(player, player.getInventory().getHeldItemSlot());
+
+		// begin preparing destination chunk, so it is ready when warmup ends
+		DestinationChunkLoader.Request destinationRequest = chunkLoader.prepare(location);
+
+		// search for a safe landing spot off the main thread, once the destination chunk is ready
+		SafeLandingResolver.Landing landing = safeLandingResolver.resolve(location, destinationRequest);
+
 		// initiate delayed teleport for player to final destination
-		BukkitTask teleportTask = new DelayedTeleportTask(plugin, player, location, destinationName, playerItem.clone())
-				.runTaskLater(plugin, SECONDS.toTicks(plugin.getConfig().getLong("teleport-warmup")));
+		DelayedTeleportTask teleportTask = new DelayedTeleportTask(plugin, scheduler, commitBatch, player, location,
+				destinationName, usedItem, destinationRequest, landing,
+				plugin.teleportHandler.getRespawnCache().isRespawnLocation(player, location));
+		int teleportHandle = scheduler.schedule(plugin.settings.warmupTicks(), teleportTask);
 
 		// if configured warmup time is greater than zero, send warmup message
 		sendWarmupMessage(player, destinationName);
 
-		// insert player and taskId into warmup hashmap
-		warmupMap.startPlayerWarmUp(player, teleportTask.getTaskId());
+		// insert player, scheduler handle and task into warmup hashmap
+		warmupMap.startPlayerWarmUp(player, teleportHandle, teleportTask);
+
+		// record player position for movement cancellation
+		plugin.teleportHandler.getMovementSweep().track(player);
 
-		// load destination chunk if not already loaded
-		loadDestinationChunk(location);
+		// start drawing warmup particles around player
+		plugin.teleportHandler.getParticleRenderer().track(player);
 
 		// if log-use is enabled in config, write log entry
-		logUsage(player);
+		logUsage(player, location, destinationName, usedItem);
 	}
 
 
@@ -109,7 +141,7 @@ class TeleportExecutor
 	private void sendWarmupMessage(final Player player, final String destinationName)
 	{
 		// get configured warmup time
-		Duration warmupTime = Duration.ofSeconds(plugin.getConfig().getLong("teleport-warmup"));
+		Duration warmupTime = plugin.settings.warmup();
 
 		// if warmup time is greater than zero, send player warmup message
 		if (warmupTime.isPositive())
@@ -122,22 +154,6 @@ class TeleportExecutor
 	}
 
 
-	/**
-	 * Preload chunk at teleport destination if not already loaded
-	 *
-	 * @param location the destination location
-	 */
-	private void loadDestinationChunk(final Location location)
-	{
-		if (location != null
-				&& location.getWorld() != null
-				&& !location.getWorld().getChunkAt(location).isLoaded())
-		{
-			location.getWorld().getChunkAt(location).load();
-		}
-	}
-
-
 	/**
 	 * Check if player is within configured minimum distance from destination location
 	 *
@@ -150,7 +166,7 @@ class TeleportExecutor
 		return location != null
 				&& location.getWorld() != null
 				&& player.getWorld().equals(location.getWorld())
-				&& player.getLocation().distanceSquared(location) < Math.pow(plugin.getConfig().getInt("minimum-distance"), 2);
+				&& player.getLocation().distanceSquared(location) < plugin.settings.minimumDistanceSquared();
 	}
 
 
@@ -163,8 +179,7 @@ class TeleportExecutor
 	final void removeFromInventoryOnUse(final Player player, final ItemStack playerItem)
 	{
 		// if remove-from-inventory is configured on-use, take one LodeStar item from inventory now
-		String removeItem = plugin.getConfig().getString("remove-from-inventory");
-		if (removeItem != null && removeItem.equalsIgnoreCase("on-use"))
+		if (plugin.settings.removeFromInventory() == HomeStarSettings.RemoveMode.ON_USE)
 		{
 			playerItem.setAmount(playerItem.getAmount() - 1);
 			player.getInventory().setItemInMainHand(playerItem);
@@ -173,21 +188,19 @@ class TeleportExecutor
 
 
 	/**
-	 * Log player usage of homestar item
+	 * Log player usage of homestar item. The record is written by the background usage log writer.
 	 *
-	 * @param player the player being logged
+	 * @param player          the player being logged
+	 * @param location        the destination location
+	 * @param destinationName the destination name
+	 * @param playerItem      the HomeStar item used
 	 */
-	private void logUsage(final Player player)
+	private void logUsage(final Player player, final Location location, final String destinationName, final ItemStack playerItem)
 	{
 		// if log-use is enabled in config, write log entry
-		if (plugin.getConfig().getBoolean("log-use"))
+		if (plugin.settings.logUse())
 		{
-
-			// send message to console
-			plugin.messageBuilder.compose(plugin.getServer().getConsoleSender(), MessageId.TELEPORT_LOG_USAGE)
-					.setMacro(Macro.PLAYER, player)
-					.setMacro(Macro.ITEM, player.getInventory().getItemInMainHand())
-					.send();
+			plugin.teleportHandler.getUsageLog().record(player, location, destinationName, playerItem);
 		}
 	}
 
@@ -20,9 +20,14 @@ package com.winterhavenmc.homestar.teleport;
 import com.winterhavenmc.homestar.PluginMain;
 import com.winterhavenmc.homestar.util.Macro;
 import com.winterhavenmc.homestar.util.MessageId;
+import org.bukkit.World;
+import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
 
 import java.time.Duration;
+import java.util.UUID;
+import java.util.function.Consumer;
 
 
 /**
@@ -31,6 +36,18 @@ import java.time.Duration;
 public final class TeleportHandler
 {
 	private final PluginMain plugin;
+	private final TeleportScheduler scheduler;
+	private final ChunkTicketManager ticketManager;
+	private final AdmissionController admissionController;
+	private final WorldPairIndex worldPairIndex;
+	private final RespawnCache respawnCache;
+	private final SpawnCache spawnCache;
+	private final ItemSlotIndex itemSlotIndex;
+	private final MovementSweep movementSweep;
+	private final WarmupParticleRenderer particleRenderer;
+	private final ArrivalEffects arrivalEffects;
+	private final DenialThrottle denialThrottle;
+	private final UsageLog usageLog;
 	private final CooldownMap cooldownMap;
 	private final WarmupMap warmupMap;
 	private final TeleportExecutor teleportExecutor;
@@ -44,9 +61,391 @@ public final class TeleportHandler
 	public TeleportHandler(final PluginMain plugin)
 	{
 		this.plugin = plugin;
-		this.cooldownMap = new CooldownMap(plugin);
-		this.warmupMap = new WarmupMap(plugin);
-		this.teleportExecutor = new TeleportExecutor(plugin, warmupMap);
+		this.scheduler = new TeleportScheduler(plugin);
+		this.ticketManager = new ChunkTicketManager(plugin);
+		this.admissionController = new AdmissionController(plugin);
+		this.worldPairIndex = new WorldPairIndex(plugin);
+		this.respawnCache = new RespawnCache();
+		this.spawnCache = new SpawnCache(plugin);
+		this.itemSlotIndex = new ItemSlotIndex();
+		this.movementSweep = new MovementSweep(plugin, scheduler);
+		this.particleRenderer = new WarmupParticleRenderer(plugin, scheduler);
+		this.arrivalEffects = new ArrivalEffects(plugin, scheduler);
+		this.denialThrottle = new DenialThrottle(plugin, scheduler);
+		this.usageLog = new UsageLog(plugin);
+		this.cooldownMap = new CooldownMap(plugin, scheduler);
+		this.warmupMap = new WarmupMap(plugin, scheduler);
+		this.teleportExecutor = new TeleportExecutor(plugin, warmupMap, scheduler,
+				new DestinationChunkLoader(plugin, scheduler, ticketManager),
+				new TeleportCommitBatch(plugin, scheduler, admissionController, arrivalEffects),
+				new SafeLandingResolver(plugin));
+	}
+
+
+	/**
+	 * Stop the teleport scheduler, release queued teleports and destination chunk tickets, and close persistent cooldowns
+	 */
+	public void shutdown()
+	{
+		scheduler.shutdown();
+		admissionController.clear();
+		arrivalEffects.clear();
+		ticketManager.releaseAll();
+		cooldownMap.close();
+		usageLog.close();
+	}
+
+
+	/**
+	 * Rebuild the index of nether and end worlds to their paired normal world from the currently loaded worlds
+	 */
+	public void rebuildWorldPairIndex()
+	{
+		worldPairIndex.rebuild(null);
+	}
+
+
+	/**
+	 * Rebuild the index of nether and end worlds to their paired normal world, leaving out a world being unloaded
+	 *
+	 * @param unloadingWorld the world being unloaded
+	 */
+	public void rebuildWorldPairIndex(final World unloadingWorld)
+	{
+		worldPairIndex.rebuild(unloadingWorld);
+	}
+
+
+	/**
+	 * Get the index of nether and end worlds to their paired normal world
+	 *
+	 * @return the world pair index
+	 */
+	WorldPairIndex getWorldPairIndex()
+	{
+		return worldPairIndex;
+	}
+
+
+	/**
+	 * Remove the cached respawn location of a player, such as when their spawn changes or they quit
+	 *
+	 * @param player the player
+	 */
+	public void invalidateRespawnLocation(final Player player)
+	{
+		respawnCache.invalidate(player);
+	}
+
+
+	/**
+	 * Remove cached respawn locations next to a bed or respawn anchor that was removed
+	 *
+	 * @param block the removed block
+	 */
+	public void invalidateRespawnLocations(final Block block)
+	{
+		respawnCache.invalidate(block);
+	}
+
+
+	/**
+	 * Remove cached respawn locations in a world being unloaded
+	 *
+	 * @param world the world being unloaded
+	 */
+	public void invalidateRespawnLocations(final World world)
+	{
+		respawnCache.invalidate(world);
+	}
+
+
+	/**
+	 * Remove the cached spawn location of a world, such as when its spawn changes or it is loaded or unloaded
+	 *
+	 * @param world the world
+	 */
+	public void invalidateSpawnLocation(final World world)
+	{
+		spawnCache.invalidate(world.getUID());
+	}
+
+
+	/**
+	 * Apply reloaded cooldown sweep and cooldown persistence settings
+	 */
+	public void reloadCooldowns()
+	{
+		cooldownMap.reload();
+	}
+
+
+	/**
+	 * Open or close the audit log with reloaded settings, and read the console usage line text
+	 * again from the reloaded language file
+	 */
+	public void reloadUsageLog()
+	{
+		usageLog.reload();
+	}
+
+
+	/**
+	 * Remove all cached world spawn locations, such as when the configuration is reloaded
+	 */
+	public void clearSpawnLocations()
+	{
+		spawnCache.clear();
+	}
+
+
+	/**
+	 * Get the number of world spawn lookups answered from the cache
+	 *
+	 * @return the number of spawn cache hits
+	 */
+	public long getSpawnCacheHits()
+	{
+		return spawnCache.getHits();
+	}
+
+
+	/**
+	 * Get the number of world spawn lookups resolved through the world manager
+	 *
+	 * @return the number of spawn cache misses
+	 */
+	public long getSpawnCacheMisses()
+	{
+		return spawnCache.getMisses();
+	}
+
+
+	/**
+	 * Get the number of arrival lightning strikes merged into an earlier strike at the same destination
+	 *
+	 * @return the number of merged lightning strikes
+	 */
+	public long getMergedArrivalStrikes()
+	{
+		return arrivalEffects.getMergedStrikes();
+	}
+
+
+	/**
+	 * Send a denial message to a player, unless the same message has been sent to them too often.
+	 * Suppressed repeats are coalesced into one trailing message.
+	 *
+	 * @param player    the player to send the message to
+	 * @param messageId the id of the denial message
+	 * @param sender    action that composes and sends the message, run only if the message is sent
+	 */
+	public void sendDenial(final Player player, final MessageId messageId, final Runnable sender)
+	{
+		denialThrottle.send(player, messageId, sender);
+	}
+
+
+	/**
+	 * Discard denial message throttling state for a player
+	 *
+	 * @param player the player
+	 */
+	public void forgetDenials(final Player player)
+	{
+		denialThrottle.forget(player);
+	}
+
+
+	/**
+	 * Get the number of denial messages suppressed by throttling
+	 *
+	 * @return the number of suppressed denial messages
+	 */
+	public long getSuppressedDenials()
+	{
+		return denialThrottle.getSuppressed();
+	}
+
+
+	/**
+	 * Get the number of trailing denial messages sent in place of suppressed repeats
+	 *
+	 * @return the number of coalesced denial messages
+	 */
+	public long getCoalescedDenials()
+	{
+		return denialThrottle.getCoalesced();
+	}
+
+
+	/**
+	 * Get the number of usage log records written by the background writer
+	 *
+	 * @return the number of written usage records
+	 */
+	public long getUsageLogWritten()
+	{
+		return usageLog.getWritten();
+	}
+
+
+	/**
+	 * Get the number of usage log records dropped because the log buffer was full
+	 *
+	 * @return the number of dropped usage records
+	 */
+	public long getUsageLogDropped()
+	{
+		return usageLog.getDropped();
+	}
+
+
+	/**
+	 * Get the number of usage log records spilled to the overflow queue because the log buffer was full
+	 *
+	 * @return the number of spilled usage records
+	 */
+	public long getUsageLogSpilled()
+	{
+		return usageLog.getSpilled();
+	}
+
+
+	/**
+	 * Get the number of teleport outcome records written to the audit log by the background writer
+	 *
+	 * @return the number of written outcome records
+	 */
+	public long getAuditLogWritten()
+	{
+		return usageLog.getAuditWritten();
+	}
+
+
+	/**
+	 * Get the number of teleport outcome records spilled to the overflow queue because the log buffer was full
+	 *
+	 * @return the number of spilled outcome records
+	 */
+	public long getAuditLogSpilled()
+	{
+		return usageLog.getAuditSpilled();
+	}
+
+
+	/**
+	 * Read a page of a player's teleport history from the audit log. The log is read off the main thread,
+	 * and the callback is run on the main thread when the page has been read.
+	 *
+	 * @param playerUid the player uuid
+	 * @param page      the page number, starting at one
+	 * @param callback  the action that receives the page
+	 */
+	public void queryHistory(final UUID playerUid, final int page, final Consumer<AuditPage> callback)
+	{
+		usageLog.queryHistory(playerUid, page, callback);
+	}
+
+
+	/**
+	 * Record an inventory slot as holding a HomeStar item
+	 *
+	 * @param player the player
+	 * @param slot   the inventory slot index
+	 */
+	public void trackItemSlot(final Player player, final int slot)
+	{
+		itemSlotIndex.track(player, slot);
+	}
+
+
+	/**
+	 * Record the inventory slots that may receive a HomeStar item picked up by a player
+	 *
+	 * @param player    the player
+	 * @param itemStack the HomeStar item being picked up
+	 */
+	public void trackItemPickup(final Player player, final ItemStack itemStack)
+	{
+		itemSlotIndex.trackPickup(player, itemStack);
+	}
+
+
+	/**
+	 * Discard the tracked HomeStar item slots of a player, such as when their inventory is rearranged
+	 *
+	 * @param player the player
+	 */
+	public void invalidateItemSlots(final Player player)
+	{
+		itemSlotIndex.invalidate(player);
+	}
+
+
+	/**
+	 * Get the sweep that cancels warmups of players who have moved
+	 *
+	 * @return the movement sweep
+	 */
+	MovementSweep getMovementSweep()
+	{
+		return movementSweep;
+	}
+
+
+	/**
+	 * Get the renderer of particles around warming up players
+	 *
+	 * @return the warmup particle renderer
+	 */
+	WarmupParticleRenderer getParticleRenderer()
+	{
+		return particleRenderer;
+	}
+
+
+	/**
+	 * Get the log of teleport usage records
+	 *
+	 * @return the usage log
+	 */
+	UsageLog getUsageLog()
+	{
+		return usageLog;
+	}
+
+
+	/**
+	 * Get the index of inventory slots holding HomeStar items
+	 *
+	 * @return the item slot index
+	 */
+	ItemSlotIndex getItemSlotIndex()
+	{
+		return itemSlotIndex;
+	}
+
+
+	/**
+	 * Get the cache of world spawn locations
+	 *
+	 * @return the spawn cache
+	 */
+	SpawnCache getSpawnCache()
+	{
+		return spawnCache;
+	}
+
+
+	/**
+	 * Get the cache of player respawn locations
+	 *
+	 * @return the respawn cache
+	 */
+	RespawnCache getRespawnCache()
+	{
+		return respawnCache;
 	}
 
 
@@ -63,13 +462,12 @@ public final class TeleportHandler
 			return;
 		}
 
-		// if player cooldown has not expired, send player cooldown message and return
-		if (cooldownMap.isCoolingDown(player))
+		// if player cooldown has not expired, send player cooldown message and return;
+		// the expire time is looked up once, and reused if the message is coalesced and sent later
+		final long cooldownExpireMillis = cooldownMap.getExpireMillis(player);
+		if (cooldownExpireMillis != 0L)
 		{
-			plugin.messageBuilder.compose(player, MessageId.TELEPORT_COOLDOWN)
-					.setMacro(Macro.ITEM, player.getInventory().getItemInMainHand())
-					.setMacro(Macro.DURATION, cooldownMap.getCooldownTimeRemaining(player))
-					.send();
+			denialThrottle.send(player, MessageId.TELEPORT_COOLDOWN, () -> sendCooldownMessage(player, cooldownExpireMillis));
 			return;
 		}
 
@@ -77,12 +475,44 @@ public final class TeleportHandler
 	}
 
 
+	/**
+	 * Send player cooldown message with the remaining cooldown time, if the cooldown has not expired
+	 * before a coalesced message is sent
+	 *
+	 * @param player       the player cooling down
+	 * @param expireMillis the cooldown expire time in epoch milliseconds, looked up when the teleport was denied
+	 */
+	private void sendCooldownMessage(final Player player, final long expireMillis)
+	{
+		long remainingMillis = expireMillis - System.currentTimeMillis();
+		if (remainingMillis > 0L)
+		{
+			plugin.messageBuilder.compose(player, MessageId.TELEPORT_COOLDOWN)
+					.setMacro(Macro.ITEM, player.getInventory().getItemInMainHand())
+					.setMacro(Macro.DURATION, Duration.ofMillis(remainingMillis))
+					.send();
+		}
+	}
+
+
 	/**
 	 * Cancel pending player teleport
 	 *
 	 * @param player the player whose teleport will be cancelled
 	 */
 	public void cancelTeleport(final Player player)
+	{
+		cancelTeleport(player, TeleportOutcome.CANCELLED);
+	}
+
+
+	/**
+	 * Cancel pending player teleport, recording the reason in the teleport audit log
+	 *
+	 * @param player  the player whose teleport will be cancelled
+	 * @param outcome the reason the teleport was cancelled
+	 */
+	public void cancelTeleport(final Player player, final TeleportOutcome outcome)
 	{
 		// check for null parameter
 		if (player == null)
@@ -93,11 +523,15 @@ public final class TeleportHandler
 		// if player is in warmup hashmap, cancel delayed teleport task and remove player from warmup hashmap
 		if (isWarmingUp(player))
 		{
-			// get delayed teleport task id
-			int taskId = warmupMap.getTaskId(player);
+			// remove delayed teleport task from scheduler; a task that has already fallen due is no longer held there
+			scheduler.cancel(warmupMap.getHandle(player));
 
-			// cancel delayed teleport task
-			plugin.getServer().getScheduler().cancelTask(taskId);
+			// release resources of the task now, even if it is waiting in a commit batch or the admission queue
+			DelayedTeleportTask delayedTeleportTask = warmupMap.getTask(player);
+			if (delayedTeleportTask != null)
+			{
+				delayedTeleportTask.cancel(outcome);
+			}
 
 			// remove player from warmup hashmap
 			removeWarmingUpPlayer(player);
@@ -129,7 +563,119 @@ public final class TeleportHandler
 
 
 	/**
-	 * Check if player is in teleport initiated set. Public pass through method.
+	 * Get the number of expired cooldown entries evicted by the most recent sweep
+	 *
+	 * @return the number of entries evicted by the last sweep
+	 */
+	public int getLastCooldownSweepEvictions()
+	{
+		return cooldownMap.getLastSweepEvictions();
+	}
+
+
+	/**
+	 * Get the number of expired cooldown entries evicted by all sweeps
+	 *
+	 * @return the total number of entries evicted by sweeps
+	 */
+	public long getTotalCooldownSweepEvictions()
+	{
+		return cooldownMap.getTotalSweepEvictions();
+	}
+
+
+	/**
+	 * Get the number of destination chunks currently held loaded by a chunk ticket
+	 *
+	 * @return the number of active chunk tickets
+	 */
+	public int getActiveChunkTickets()
+	{
+		return ticketManager.getActiveTickets();
+	}
+
+
+	/**
+	 * Get the number of teleports waiting for admission in a later tick
+	 *
+	 * @return the admission queue depth
+	 */
+	public int getAdmissionQueueDepth()
+	{
+		return admissionController.getQueueDepth();
+	}
+
+
+	/**
+	 * Get the number of teleports that may be committed in the current tick
+	 *
+	 * @return the current admission budget, or zero if unlimited
+	 */
+	public int getAdmissionBudget()
+	{
+		return admissionController.getTickBudget();
+	}
+
+
+	/**
+	 * Get the number of teleports queued for admission since the plugin was enabled
+	 *
+	 * @return the total number of queued teleports
+	 */
+	public long getTotalAdmissionQueued()
+	{
+		return admissionController.getTotalQueued();
+	}
+
+
+	/**
+	 * Get the moving average of the time queued teleports have waited for admission
+	 *
+	 * @return the average admission wait time
+	 */
+	public Duration getAverageAdmissionWait()
+	{
+		return admissionController.getAverageWait();
+	}
+
+
+	/**
+	 * Get the longest time a queued teleport has waited for admission since the plugin was enabled
+	 *
+	 * @return the maximum admission wait time
+	 */
+	public Duration getMaxAdmissionWait()
+	{
+		return admissionController.getMaxWait();
+	}
+
+
+	/**
+	 * Set the callbacks run when the first player begins warming up and when the last warmup ends.
+	 * Used to register warmup cancellation listeners only while they are needed.
+	 *
+	 * @param onActive the callback run when the first player begins warming up
+	 * @param onIdle   the callback run when the last warmup ends
+	 */
+	public void setWarmupActivityCallbacks(final Runnable onActive, final Runnable onIdle)
+	{
+		warmupMap.setActivityCallbacks(onActive, onIdle);
+	}
+
+
+	/**
+	 * Run the warmup activity callbacks again if any player is warming up, so listeners registered
+	 * for active warmups are registered again with reloaded configuration settings
+	 */
+	public void refreshWarmupActivity()
+	{
+		warmupMap.refreshActivity();
+	}
+
+
+	/**
+	 * Check if player is in teleport initiated set, that is, their teleport was initiated within the interact delay.
+	 * Public pass through method.
 	 *
 	 * @param player the player to check if teleport is initiated
 	 * @return {@code true} if teleport been initiated, {@code false} if it has not
@@ -152,6 +698,18 @@ public final class TeleportHandler
 	}
 
 
+	/**
+	 * Replace the scheduler handle of a warming up player whose warmup has been extended
+	 *
+	 * @param player the warming up player
+	 * @param handle the scheduler handle of the rescheduled delayed teleport task
+	 */
+	void extendWarmingUp(final Player player, final int handle)
+	{
+		warmupMap.updateHandle(player, handle);
+	}
+
+
 	/**
 	 * Remove player uuid from warmup hashmap. Public pass through method.
 	 *
@@ -159,6 +717,8 @@ public final class TeleportHandler
 	 */
 	public void removeWarmingUpPlayer(final Player player)
 	{
+		movementSweep.untrack(player);
+		particleRenderer.untrack(player);
 		warmupMap.removePlayer(player);
 	}
 
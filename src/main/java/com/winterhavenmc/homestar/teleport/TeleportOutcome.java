@@ -0,0 +1,49 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+/**
+ * The outcome of a teleport, recorded in the teleport audit log. Outcomes are stored in the audit
+ * log by ordinal, so new outcomes must only be added at the end.
+ */
+public enum TeleportOutcome
+{
+	SUCCESS,
+	CANCELLED,
+	CANCELLED_MOVEMENT,
+	CANCELLED_DAMAGE,
+	CANCELLED_INTERACTION,
+	NO_ITEM,
+	NO_BEDSPAWN,
+	DESTINATION_TIMEOUT;
+
+	private static final TeleportOutcome[] VALUES = values();
+
+
+	/**
+	 * Get an outcome by its stored ordinal
+	 *
+	 * @param ordinal the stored ordinal
+	 * @return the outcome, or {@link #CANCELLED} if the ordinal is unknown
+	 */
+	static TeleportOutcome ofOrdinal(final int ordinal)
+	{
+		return (ordinal >= 0 && ordinal < VALUES.length) ? VALUES[ordinal] : CANCELLED;
+	}
+
+}
@@ -0,0 +1,411 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.logging.Level;
+
+
+/**
+ * A hashed timing wheel driven by a single repeating server task. Teleport warmups, interact-delay
+ * expiries and particle pulses are held as slots in the wheel, so scheduling and cancelling an entry
+ * are constant time operations and no per-player tasks are submitted to the Bukkit scheduler.
+ * <p>
+ * Entries are addressed by integer handles that encode a slot index and a generation count, so a
+ * handle that is kept after its entry has fired or been cancelled is safely ignored. This class is
+ * not thread safe, and must only be accessed from the server main thread.
+ */
+final class TeleportScheduler implements Runnable
+{
+	// handle value that never refers to a scheduled entry
+	static final int NO_HANDLE = -1;
+
+	// number of buckets in the wheel; must be a power of two
+	private static final int WHEEL_SIZE = 512;
+	private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+
+	// handle layout: low bits hold the slot index, high bits hold the slot generation
+	private static final int INDEX_BITS = 20;
+	private static final int INDEX_MASK = (1 << INDEX_BITS) - 1;
+	private static final int GENERATION_MASK = (1 << (Integer.SIZE - 1 - INDEX_BITS)) - 1;
+
+	// link values for empty lists and for entries that have been removed from their bucket
+	private static final int NIL = -1;
+	private static final int DETACHED = -2;
+
+	private static final int INITIAL_CAPACITY = 64;
+
+	private final Plugin plugin;
+	private final BukkitTask tickTask;
+
+	// head slot index of the linked list for each bucket
+	private final int[] buckets = new int[WHEEL_SIZE];
+
+	// slot storage, indexed by slot index
+	private int[] next;
+	private int[] prev;
+	private int[] generation;
+	private long[] deadline;
+	private long[] period;
+	private Runnable[] actions;
+
+	private int freeHead = NIL;
+	private int size;
+	private long currentTick;
+
+	// reusable buffer for handles of entries that fall due in the current tick
+	private int[] dueBuffer = new int[INITIAL_CAPACITY];
+
+	// actions run at the end of every tick, after all due entries
+	private final List<Runnable> tickEndActions = new ArrayList<>();
+
+
+	/**
+	 * Class constructor. Starts the repeating server task that advances the wheel.
+	 *
+	 * @param plugin reference to plugin main class
+	 */
+	TeleportScheduler(final Plugin plugin)
+	{
+		this.plugin = Objects.requireNonNull(plugin);
+
+		Arrays.fill(buckets, NIL);
+
+		next = new int[0];
+		prev = new int[0];
+		generation = new int[0];
+		deadline = new long[0];
+		period = new long[0];
+		actions = new Runnable[0];
+		grow();
+
+		this.tickTask = plugin.getServer().getScheduler().runTaskTimer(plugin, this, 1L, 1L);
+	}
+
+
+	/**
+	 * Schedule an action to run once after a delay
+	 *
+	 * @param delayTicks the number of ticks to wait before running the action; values less than one run on the next tick
+	 * @param action     the action to run
+	 * @return the handle of the scheduled entry
+	 */
+	int schedule(final long delayTicks, final Runnable action)
+	{
+		return schedule(delayTicks, 0L, action);
+	}
+
+
+	/**
+	 * Schedule an action to run after a delay, and then repeatedly with the given period
+	 *
+	 * @param delayTicks  the number of ticks to wait before first running the action
+	 * @param periodTicks the number of ticks between runs, or zero to run only once
+	 * @param action      the action to run
+	 * @return the handle of the scheduled entry
+	 */
+	int schedule(final long delayTicks, final long periodTicks, final Runnable action)
+	{
+		Objects.requireNonNull(action);
+
+		int index = allocate();
+		actions[index] = action;
+		period[index] = Math.max(0L, periodTicks);
+		link(index, currentTick + Math.max(1L, delayTicks));
+
+		return handleOf(index);
+	}
+
+
+	/**
+	 * Register an action to run at the end of every tick, after all entries due in that tick have run
+	 *
+	 * @param action the action to run
+	 */
+	void onTickEnd(final Runnable action)
+	{
+		tickEndActions.add(Objects.requireNonNull(action));
+	}
+
+
+	/**
+	 * Cancel a scheduled entry. Cancelling a stale or unknown handle has no effect.
+	 *
+	 * @param handle the handle of the entry to cancel
+	 * @return the action of the cancelled entry, or {@code null} if no entry was cancelled
+	 */
+	Runnable cancel(final int handle)
+	{
+		if (!isScheduled(handle))
+		{
+			return null;
+		}
+
+		int index = handle & INDEX_MASK;
+		Runnable action = actions[index];
+
+		if (prev[index] != DETACHED)
+		{
+			unlink(index);
+		}
+		release(index);
+
+		return action;
+	}
+
+
+	/**
+	 * Check if a handle refers to an entry that is still scheduled
+	 *
+	 * @param handle the handle to check
+	 * @return {@code true} if the entry has not yet fired or been cancelled, {@code false} if not
+	 */
+	boolean isScheduled(final int handle)
+	{
+		if (handle < 0)
+		{
+			return false;
+		}
+
+		int index = handle & INDEX_MASK;
+		return index < actions.length
+				&& actions[index] != null
+				&& generation[index] == handle >>> INDEX_BITS;
+	}
+
+
+	/**
+	 * Get the number of entries currently scheduled
+	 *
+	 * @return the number of scheduled entries
+	 */
+	int size()
+	{
+		return size;
+	}
+
+
+	/**
+	 * Get the number of ticks the wheel has advanced since it was started
+	 *
+	 * @return the current tick
+	 */
+	long getCurrentTick()
+	{
+		return currentTick;
+	}
+
+
+	/**
+	 * Cancel the repeating server task and discard all scheduled entries
+	 */
+	void shutdown()
+	{
+		tickTask.cancel();
+		Arrays.fill(buckets, NIL);
+		Arrays.fill(actions, null);
+		size = 0;
+	}
+
+
+	/**
+	 * Advance the wheel by one tick and run all entries that have fallen due
+	 */
+	@Override
+	public void run()
+	{
+		currentTick++;
+
+		// detach due entries before running any of them, so actions may freely schedule or cancel entries
+		int dueCount = 0;
+		int index = buckets[(int) (currentTick & WHEEL_MASK)];
+		while (index != NIL)
+		{
+			int following = next[index];
+			if (deadline[index] <= currentTick)
+			{
+				unlink(index);
+				if (dueCount == dueBuffer.length)
+				{
+					dueBuffer = Arrays.copyOf(dueBuffer, dueCount * 2);
+				}
+				dueBuffer[dueCount++] = handleOf(index);
+			}
+			index = following;
+		}
+
+		for (int i = 0; i < dueCount; i++)
+		{
+			fire(dueBuffer[i]);
+		}
+
+		for (Runnable action : tickEndActions)
+		{
+			runSafely(action);
+		}
+	}
+
+
+	/**
+	 * Run a due entry, then release it or reinsert it if it repeats
+	 *
+	 * @param handle the handle of the due entry
+	 */
+	private void fire(final int handle)
+	{
+		// entry may have been cancelled by an action that ran earlier in this tick
+		if (!isScheduled(handle))
+		{
+			return;
+		}
+
+		int index = handle & INDEX_MASK;
+		Runnable action = actions[index];
+
+		// one-shot entries are released before running, so the handle is stale inside the action
+		if (period[index] == 0L)
+		{
+			release(index);
+		}
+
+		runSafely(action);
+
+		// reinsert repeating entry unless it was cancelled while running
+		if (isScheduled(handle) && period[index] > 0L)
+		{
+			link(index, currentTick + period[index]);
+		}
+	}
+
+
+	private void runSafely(final Runnable action)
+	{
+		try
+		{
+			action.run();
+		}
+		catch (RuntimeException e)
+		{
+			plugin.getLogger().log(Level.WARNING, "A scheduled teleport action threw an exception.", e);
+		}
+	}
+
+
+	private int handleOf(final int index)
+	{
+		return (generation[index] << INDEX_BITS) | index;
+	}
+
+
+	private int allocate()
+	{
+		if (freeHead == NIL)
+		{
+			grow();
+		}
+
+		int index = freeHead;
+		freeHead = next[index];
+		size++;
+		return index;
+	}
+
+
+	private void release(final int index)
+	{
+		actions[index] = null;
+		generation[index] = (generation[index] + 1) & GENERATION_MASK;
+		prev[index] = DETACHED;
+		next[index] = freeHead;
+		freeHead = index;
+		size--;
+	}
+
+
+	private void link(final int index, final long tick)
+	{
+		int bucket = (int) (tick & WHEEL_MASK);
+		int head = buckets[bucket];
+
+		deadline[index] = tick;
+		prev[index] = NIL;
+		next[index] = head;
+		if (head != NIL)
+		{
+			prev[head] = index;
+		}
+		buckets[bucket] = index;
+	}
+
+
+	private void unlink(final int index)
+	{
+		int before = prev[index];
+		int after = next[index];
+
+		if (before == NIL)
+		{
+			buckets[(int) (deadline[index] & WHEEL_MASK)] = after;
+		}
+		else
+		{
+			next[before] = after;
+		}
+
+		if (after != NIL)
+		{
+			prev[after] = before;
+		}
+
+		prev[index] = DETACHED;
+		next[index] = DETACHED;
+	}
+
+
+	private void grow()
+	{
+		int oldCapacity = actions.length;
+		int newCapacity = Math.max(INITIAL_CAPACITY, oldCapacity * 2);
+		if (newCapacity > INDEX_MASK + 1)
+		{
+			throw new IllegalStateException("Teleport scheduler capacity exceeded.");
+		}
+
+		next = Arrays.copyOf(next, newCapacity);
+		prev = Arrays.copyOf(prev, newCapacity);
+		generation = Arrays.copyOf(generation, newCapacity);
+		deadline = Arrays.copyOf(deadline, newCapacity);
+		period = Arrays.copyOf(period, newCapacity);
+		actions = Arrays.copyOf(actions, newCapacity);
+
+		// thread new slots onto the free list, lowest index first
+		for (int i = newCapacity - 1; i >= oldCapacity; i--)
+		{
+			prev[i] = DETACHED;
+			next[i] = freeHead;
+			freeHead = i;
+		}
+	}
+
+}
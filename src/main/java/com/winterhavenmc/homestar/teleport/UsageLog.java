@@ -0,0 +1,579 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import com.winterhavenmc.homestar.PluginMain;
+import com.winterhavenmc.homestar.util.HomeStarSettings;
+import com.winterhavenmc.homestar.util.MessageId;
+
+import org.bukkit.ChatColor;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.configuration.file.YamlConfiguration;
+import org.bukkit.entity.Player;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.meta.ItemMeta;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.logging.Level;
+
+
+/**
+ * Records teleport usage without formatting or writing on the server main thread. The main thread
+ * copies each record into a lock-free {@link UsageRing}, and a background writer thread drains the
+ * rings in batches, passing each record to its {@link UsageSink}, then flushing the sinks once per
+ * batch. Item use records are written to the console, and teleport outcome records to the
+ * {@link AuditLog}, each kind through its own ring, so a burst of one kind cannot crowd out the other.
+ * Audit history queries are run by the writer thread between batches, so the audit log is only ever
+ * accessed from one thread. The writer thread is parked while it has nothing to do, and is woken
+ * when a record or task is added.
+ * <p>
+ * When the item use ring is full, the configured overflow policy decides what happens to a new record.
+ * With the drop policy, the record is discarded and counted, and the writer reports the number
+ * of dropped records. With the spill policy, the record is copied to an unbounded lock-free queue,
+ * which is drained after the ring; while the queue holds records, new records are also spilled,
+ * so records are written in the order they were made. Outcome records are always spilled, since
+ * the audit log must be complete. Neither policy blocks the main thread.
+ */
+final class UsageLog implements Runnable
+{
+	// language file path of the console usage line text
+	private static final String USAGE_MESSAGE_PATH = "MESSAGES." + MessageId.TELEPORT_LOG_USAGE + ".MESSAGE_TEXT";
+
+	// language used if the configured language file is not installed
+	private static final String DEFAULT_LANGUAGE = "en-US";
+
+	// maximum number of records of each kind written between flushes
+	private static final int BATCH_SIZE = 256;
+
+	// time to wait for the writer to finish draining when the log is closed
+	private static final long CLOSE_TIMEOUT_MILLIS = 2000;
+
+	private final PluginMain plugin;
+	private final RecordQueue uses;
+	private final RecordQueue outcomes;
+	private final ConsoleUsageSink consoleSink;
+	private final Queue<Runnable> tasks = new ConcurrentLinkedQueue<>();
+	private final Thread writer;
+	private volatile boolean running = true;
+
+	// audit log, or null while the audit log is disabled; accessed only by the writer thread
+	private AuditLog auditLog;
+
+	// record reused by the main thread to offer records to the rings
+	private final UsageRecord offered = new UsageRecord();
+
+	// reusable location for reading player positions on the main thread
+	private final Location scratch = new Location(null, 0, 0, 0);
+
+	// record reused by the writer thread to read records from the rings
+	private final UsageRecord polled = new UsageRecord();
+
+	// dropped count last reported by the writer, accessed only by the writer thread
+	private long reportedDrops;
+
+
+	/**
+	 * Class constructor. Starts the writer thread, opens the audit log if it is enabled,
+	 * and reads the console usage line text.
+	 *
+	 * @param plugin reference to plugin main class
+	 */
+	UsageLog(final PluginMain plugin)
+	{
+		this.plugin = Objects.requireNonNull(plugin);
+
+		HomeStarSettings settings = plugin.settings;
+		this.uses = new RecordQueue(settings.logBufferSize());
+		this.outcomes = new RecordQueue(settings.logBufferSize());
+		this.consoleSink = new ConsoleUsageSink(plugin.getLogger());
+
+		this.writer = new Thread(this, plugin.getName() + " usage log writer");
+		this.writer.setDaemon(true);
+		this.writer.start();
+
+		applyAuditSetting(settings);
+		loadMessageText();
+	}
+
+
+	/**
+	 * Open or close the audit log, and read the console usage line text from the configured language
+	 * file again. Called only from the server main thread, after the configuration and messages are reloaded.
+	 */
+	void reload()
+	{
+		applyAuditSetting(plugin.settings);
+		loadMessageText();
+	}
+
+
+	/**
+	 * Queue a task that opens the audit log on the writer thread if it is enabled and not open,
+	 * or closes it if it is open and not enabled. The audit log directory is created only when
+	 * the audit log is opened.
+	 *
+	 * @param settings the settings snapshot to apply
+	 */
+	private void applyAuditSetting(final HomeStarSettings settings)
+	{
+		Path directory = plugin.getDataFolder().toPath().resolve("audit");
+
+		tasks.add(() ->
+		{
+			if (settings.auditLog() && auditLog == null)
+			{
+				auditLog = new AuditLog(plugin.getLogger(), directory,
+						settings.auditSegmentBytes(), settings.auditRetainedSegments());
+				auditLog.open();
+			}
+			else if (!settings.auditLog() && auditLog != null)
+			{
+				closeSink(auditLog);
+				auditLog = null;
+			}
+		});
+		LockSupport.unpark(writer);
+	}
+
+
+	/**
+	 * Queue a task that reads the console usage line text from the installed language file on the writer
+	 * thread. The {@code TELEPORT_LOG_USAGE} message text is read from the file directly, because the line
+	 * is formatted off the main thread, where messages cannot be composed.
+	 */
+	private void loadMessageText()
+	{
+		File languageDirectory = new File(plugin.getDataFolder(), "language");
+		String language = plugin.getConfig().getString("language", DEFAULT_LANGUAGE);
+
+		tasks.add(() ->
+		{
+			File languageFile = new File(languageDirectory, language + ".yml");
+			if (!languageFile.isFile())
+			{
+				languageFile = new File(languageDirectory, DEFAULT_LANGUAGE + ".yml");
+			}
+
+			// use the default message text if no language file is installed
+			consoleSink.setMessageText(languageFile.isFile()
+					? YamlConfiguration.loadConfiguration(languageFile).getString(USAGE_MESSAGE_PATH)
+					: null);
+		});
+		LockSupport.unpark(writer);
+	}
+
+
+	/**
+	 * Record a teleport initiated by a player. Called only from the server main thread;
+	 * the usage line is formatted by the writer thread.
+	 *
+	 * @param player          the player using a HomeStar item
+	 * @param destination     the teleport destination
+	 * @param destinationName the destination display name
+	 * @param playerItem      the HomeStar item used
+	 */
+	void record(final Player player, final Location destination, final String destinationName, final ItemStack playerItem)
+	{
+		fill(player, player.getLocation(scratch), destination);
+		offered.destinationName = destinationName;
+		offered.itemName = displayName(playerItem);
+		offered.warmupTicks = 0;
+		offered.outcome = null;
+		uses.offer(offered, plugin.settings.logOverflow() == HomeStarSettings.LogOverflow.DROP);
+
+		// an unpark before the writer parks is not lost, so the writer cannot miss this record
+		LockSupport.unpark(writer);
+	}
+
+
+	/**
+	 * Record the outcome of a teleport in the audit log. Called only from the server main thread.
+	 * Outcome records are never dropped.
+	 *
+	 * @param player      the teleporting player
+	 * @param origin      the location the player teleported from
+	 * @param destination the teleport destination
+	 * @param itemName    the material name of the item used
+	 * @param warmupTicks the ticks from initiating the teleport to its outcome
+	 * @param outcome     the outcome of the teleport
+	 */
+	void recordOutcome(final Player player,
+	                   final Location origin,
+	                   final Location destination,
+	                   final String itemName,
+	                   final long warmupTicks,
+	                   final TeleportOutcome outcome)
+	{
+		fill(player, origin, destination);
+		offered.destinationName = null;
+		offered.itemName = itemName;
+		offered.warmupTicks = warmupTicks;
+		offered.outcome = Objects.requireNonNull(outcome);
+		outcomes.offer(offered, false);
+		LockSupport.unpark(writer);
+	}
+
+
+	/**
+	 * Read a page of a player's teleport history from the audit log on the writer thread,
+	 * and pass it to a callback on the server main thread. The page is empty if the audit log is disabled.
+	 *
+	 * @param playerUid the player uuid
+	 * @param page      the page number, starting at one
+	 * @param callback  the action that receives the page on the main thread
+	 */
+	void queryHistory(final UUID playerUid, final int page, final Consumer<AuditPage> callback)
+	{
+		tasks.add(() ->
+		{
+			AuditPage result;
+			try
+			{
+				result = (auditLog != null) ? auditLog.query(playerUid, page) : AuditPage.empty(page);
+			}
+			catch (IOException | RuntimeException e)
+			{
+				plugin.getLogger().log(Level.WARNING, "Could not read teleport audit log.", e);
+				result = AuditPage.empty(page);
+			}
+
+			final AuditPage finalResult = result;
+			if (plugin.isEnabled())
+			{
+				plugin.getServer().getScheduler().runTask(plugin, () -> callback.accept(finalResult));
+			}
+		});
+		LockSupport.unpark(writer);
+	}
+
+
+	/**
+	 * Get the display name of an item without color codes, or its material name if it has none
+	 *
+	 * @param item the item
+	 * @return the plain item name
+	 */
+	private static String displayName(final ItemStack item)
+	{
+		ItemMeta itemMeta = item.getItemMeta();
+		return (itemMeta != null && itemMeta.hasDisplayName())
+				? ChatColor.stripColor(itemMeta.getDisplayName())
+				: item.getType().name();
+	}
+
+
+	/**
+	 * Fill the fields shared by use and outcome records
+	 *
+	 * @param player      the player
+	 * @param origin      the location the player teleported from
+	 * @param destination the teleport destination
+	 */
+	private void fill(final Player player, final Location origin, final Location destination)
+	{
+		World world = Objects.requireNonNull(origin.getWorld());
+		World destinationWorld = Objects.requireNonNull(destination.getWorld());
+
+		offered.timeMillis = System.currentTimeMillis();
+		offered.playerUid = player.getUniqueId();
+		offered.playerName = player.getName();
+		offered.worldUid = world.getUID();
+		offered.worldName = world.getName();
+		offered.blockX = origin.getBlockX();
+		offered.blockY = origin.getBlockY();
+		offered.blockZ = origin.getBlockZ();
+		offered.destinationWorldUid = destinationWorld.getUID();
+		offered.destinationX = destination.getBlockX();
+		offered.destinationY = destination.getBlockY();
+		offered.destinationZ = destination.getBlockZ();
+	}
+
+
+	/**
+	 * Get the number of item use records written to the console
+	 *
+	 * @return the number of written use records
+	 */
+	long getWritten()
+	{
+		return uses.written.get();
+	}
+
+
+	/**
+	 * Get the number of item use records dropped because the ring was full
+	 *
+	 * @return the number of dropped use records
+	 */
+	long getDropped()
+	{
+		return uses.dropped.get();
+	}
+
+
+	/**
+	 * Get the number of item use records spilled to the overflow queue because the ring was full
+	 *
+	 * @return the number of spilled use records
+	 */
+	long getSpilled()
+	{
+		return uses.spilled.get();
+	}
+
+
+	/**
+	 * Get the number of teleport outcome records written to the audit log
+	 *
+	 * @return the number of written outcome records
+	 */
+	long getAuditWritten()
+	{
+		return outcomes.written.get();
+	}
+
+
+	/**
+	 * Get the number of teleport outcome records spilled to the overflow queue because the ring was full
+	 *
+	 * @return the number of spilled outcome records
+	 */
+	long getAuditSpilled()
+	{
+		return outcomes.spilled.get();
+	}
+
+
+	/**
+	 * Stop the writer thread after it has written all waiting records, and close the sinks
+	 */
+	void close()
+	{
+		running = false;
+		LockSupport.unpark(writer);
+		try
+		{
+			writer.join(CLOSE_TIMEOUT_MILLIS);
+		}
+		catch (InterruptedException e)
+		{
+			Thread.currentThread().interrupt();
+		}
+	}
+
+
+	/**
+	 * Writer thread loop
+	 */
+	@Override
+	public void run()
+	{
+		while (true)
+		{
+			runTasks();
+
+			int count = drainBatch(uses, consoleSink) + drainBatch(outcomes, auditLog);
+			if (count > 0)
+			{
+				flushSink(consoleSink);
+				flushSink(auditLog);
+				reportDrops();
+				continue;
+			}
+
+			reportDrops();
+			if (!running)
+			{
+				break;
+			}
+			LockSupport.park(this);
+		}
+
+		closeSink(consoleSink);
+		closeSink(auditLog);
+	}
+
+
+	private void runTasks()
+	{
+		Runnable task;
+		while ((task = tasks.poll()) != null)
+		{
+			try
+			{
+				task.run();
+			}
+			catch (RuntimeException e)
+			{
+				plugin.getLogger().log(Level.WARNING, "A usage log task threw an exception.", e);
+			}
+		}
+	}
+
+
+	/**
+	 * Write up to one batch of records of one kind, taking records from the ring before the spill queue
+	 *
+	 * @param queue the records to write
+	 * @param sink  the sink to write the records to, or null to discard them
+	 * @return the number of records taken
+	 */
+	private int drainBatch(final RecordQueue queue, final UsageSink sink)
+	{
+		int count = 0;
+		int written = 0;
+		UsageRecord record;
+		while (count < BATCH_SIZE && (record = queue.poll(polled)) != null)
+		{
+			count++;
+			if (sink == null)
+			{
+				continue;
+			}
+
+			try
+			{
+				sink.write(record);
+				written++;
+			}
+			catch (IOException | RuntimeException e)
+			{
+				plugin.getLogger().log(Level.WARNING, "Could not write usage log record.", e);
+			}
+		}
+
+		queue.written.addAndGet(written);
+		return count;
+	}
+
+
+	private void flushSink(final UsageSink sink)
+	{
+		if (sink == null)
+		{
+			return;
+		}
+
+		try
+		{
+			sink.flush();
+		}
+		catch (IOException | RuntimeException e)
+		{
+			plugin.getLogger().log(Level.WARNING, "Could not flush usage log.", e);
+		}
+	}
+
+
+	private void closeSink(final UsageSink sink)
+	{
+		if (sink == null)
+		{
+			return;
+		}
+
+		try
+		{
+			sink.close();
+		}
+		catch (IOException e)
+		{
+			plugin.getLogger().log(Level.WARNING, "Could not close usage log.", e);
+		}
+	}
+
+
+	private void reportDrops()
+	{
+		long drops = uses.dropped.get();
+		if (drops != reportedDrops)
+		{
+			plugin.getLogger().warning((drops - reportedDrops) + " usage log records were dropped because the log buffer was full.");
+			reportedDrops = drops;
+		}
+	}
+
+
+	/**
+	 * The ring, overflow queue and counts of one kind of record
+	 */
+	private static final class RecordQueue
+	{
+		private final UsageRing ring;
+		private final Queue<UsageRecord> spill = new ConcurrentLinkedQueue<>();
+		private final AtomicLong written = new AtomicLong();
+		private final AtomicLong dropped = new AtomicLong();
+		private final AtomicLong spilled = new AtomicLong();
+
+
+		private RecordQueue(final int capacity)
+		{
+			this.ring = new UsageRing(capacity);
+		}
+
+
+		/**
+		 * Add a record to the ring, or if the ring is full, drop it or copy it to the spill queue.
+		 * Called only from the server main thread.
+		 *
+		 * @param record       the record to add
+		 * @param dropWhenFull {@code true} to drop the record if the ring is full, {@code false} to spill it
+		 */
+		private void offer(final UsageRecord record, final boolean dropWhenFull)
+		{
+			// keep spilling while spilled records are waiting, so records are written in order
+			if (spill.isEmpty() && ring.offer(record))
+			{
+				return;
+			}
+
+			if (dropWhenFull)
+			{
+				dropped.incrementAndGet();
+			}
+			else
+			{
+				spill.add(new UsageRecord().copyFrom(record));
+				spilled.incrementAndGet();
+			}
+		}
+
+
+		/**
+		 * Take the oldest record, from the ring before the spill queue. Called only from the writer thread.
+		 *
+		 * @param reused the record to copy a record from the ring into
+		 * @return the record taken, or null if there is none
+		 */
+		private UsageRecord poll(final UsageRecord reused)
+		{
+			return ring.poll(reused) ? reused : spill.poll();
+		}
+	}
+
+}
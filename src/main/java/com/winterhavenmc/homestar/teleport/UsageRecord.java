@@ -0,0 +1,78 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import java.util.UUID;
+
+
+/**
+ * A single teleport usage record, either the use of a HomeStar item written to the console log,
+ * or the outcome of a teleport written to the audit log. Instances are mutable and are reused by the usage log writer
+ * when records are read from the ring buffer, so a {@link UsageSink} must not keep a reference
+ * to a record after its write method returns.
+ */
+final class UsageRecord
+{
+	long timeMillis;
+	UUID playerUid;
+	String playerName;
+	UUID worldUid;
+	String worldName;
+	int blockX;
+	int blockY;
+	int blockZ;
+	String destinationName;
+	UUID destinationWorldUid;
+	int destinationX;
+	int destinationY;
+	int destinationZ;
+	String itemName;
+	long warmupTicks;
+
+	// outcome of the teleport, or null for a record of item use
+	TeleportOutcome outcome;
+
+
+	/**
+	 * Copy the fields of another record into this record
+	 *
+	 * @param other the record to copy
+	 * @return this record
+	 */
+	UsageRecord copyFrom(final UsageRecord other)
+	{
+		timeMillis = other.timeMillis;
+		playerUid = other.playerUid;
+		playerName = other.playerName;
+		worldUid = other.worldUid;
+		worldName = other.worldName;
+		blockX = other.blockX;
+		blockY = other.blockY;
+		blockZ = other.blockZ;
+		destinationName = other.destinationName;
+		destinationWorldUid = other.destinationWorldUid;
+		destinationX = other.destinationX;
+		destinationY = other.destinationY;
+		destinationZ = other.destinationZ;
+		itemName = other.itemName;
+		warmupTicks = other.warmupTicks;
+		outcome = other.outcome;
+		return this;
+	}
+
+}
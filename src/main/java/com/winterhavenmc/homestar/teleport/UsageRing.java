@@ -0,0 +1,190 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+
+/**
+ * A bounded, lock-free, single producer single consumer ring buffer of teleport usage records.
+ * Record fields are held in parallel arrays, so offering a record does not allocate. Each slot has
+ * a sequence number that tells the producer when the slot is free, and tells the consumer when
+ * the slot has been written; the sequence is published with release ordering after the fields
+ * are written, and read with acquire ordering before the fields are read.
+ * <p>
+ * Only the server main thread may offer records, and only the usage log writer thread may poll them.
+ */
+final class UsageRing
+{
+	private final int capacity;
+	private final int mask;
+	private final AtomicLongArray sequences;
+
+	private final long[] timeMillis;
+	private final UUID[] playerUids;
+	private final String[] playerNames;
+	private final UUID[] worldUids;
+	private final String[] worldNames;
+	private final int[] blockX;
+	private final int[] blockY;
+	private final int[] blockZ;
+	private final String[] destinationNames;
+	private final UUID[] destinationWorldUids;
+	private final int[] destinationX;
+	private final int[] destinationY;
+	private final int[] destinationZ;
+	private final String[] itemNames;
+	private final long[] warmupTicks;
+	private final TeleportOutcome[] outcomes;
+
+	// next sequence to write, accessed only by the producer
+	private long head;
+
+	// next sequence to read, accessed only by the consumer
+	private long tail;
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param requestedCapacity the minimum number of records held; rounded up to a power of two
+	 */
+	UsageRing(final int requestedCapacity)
+	{
+		this.capacity = Integer.highestOneBit(Math.max(2, requestedCapacity - 1)) << 1;
+		this.mask = capacity - 1;
+		this.sequences = new AtomicLongArray(capacity);
+		for (int i = 0; i < capacity; i++)
+		{
+			sequences.set(i, i);
+		}
+
+		timeMillis = new long[capacity];
+		playerUids = new UUID[capacity];
+		playerNames = new String[capacity];
+		worldUids = new UUID[capacity];
+		worldNames = new String[capacity];
+		blockX = new int[capacity];
+		blockY = new int[capacity];
+		blockZ = new int[capacity];
+		destinationNames = new String[capacity];
+		destinationWorldUids = new UUID[capacity];
+		destinationX = new int[capacity];
+		destinationY = new int[capacity];
+		destinationZ = new int[capacity];
+		itemNames = new String[capacity];
+		warmupTicks = new long[capacity];
+		outcomes = new TeleportOutcome[capacity];
+	}
+
+
+	/**
+	 * Get the number of records the ring can hold
+	 *
+	 * @return the ring capacity
+	 */
+	int capacity()
+	{
+		return capacity;
+	}
+
+
+	/**
+	 * Add a record to the ring, if there is a free slot. Called only by the producer.
+	 *
+	 * @param record the record to copy into the ring
+	 * @return {@code true} if the record was added, {@code false} if the ring is full
+	 */
+	boolean offer(final UsageRecord record)
+	{
+		int slot = (int) (head & mask);
+		if (sequences.getAcquire(slot) != head)
+		{
+			return false;
+		}
+
+		timeMillis[slot] = record.timeMillis;
+		playerUids[slot] = record.playerUid;
+		playerNames[slot] = record.playerName;
+		worldUids[slot] = record.worldUid;
+		worldNames[slot] = record.worldName;
+		blockX[slot] = record.blockX;
+		blockY[slot] = record.blockY;
+		blockZ[slot] = record.blockZ;
+		destinationNames[slot] = record.destinationName;
+		destinationWorldUids[slot] = record.destinationWorldUid;
+		destinationX[slot] = record.destinationX;
+		destinationY[slot] = record.destinationY;
+		destinationZ[slot] = record.destinationZ;
+		itemNames[slot] = record.itemName;
+		warmupTicks[slot] = record.warmupTicks;
+		outcomes[slot] = record.outcome;
+
+		sequences.setRelease(slot, head + 1);
+		head++;
+		return true;
+	}
+
+
+	/**
+	 * Take the oldest record from the ring, if any. Called only by the consumer.
+	 *
+	 * @param record the record to copy the oldest record into
+	 * @return {@code true} if a record was taken, {@code false} if the ring is empty
+	 */
+	boolean poll(final UsageRecord record)
+	{
+		int slot = (int) (tail & mask);
+		if (sequences.getAcquire(slot) != tail + 1)
+		{
+			return false;
+		}
+
+		record.timeMillis = timeMillis[slot];
+		record.playerUid = playerUids[slot];
+		record.playerName = playerNames[slot];
+		record.worldUid = worldUids[slot];
+		record.worldName = worldNames[slot];
+		record.blockX = blockX[slot];
+		record.blockY = blockY[slot];
+		record.blockZ = blockZ[slot];
+		record.destinationName = destinationNames[slot];
+		record.destinationWorldUid = destinationWorldUids[slot];
+		record.destinationX = destinationX[slot];
+		record.destinationY = destinationY[slot];
+		record.destinationZ = destinationZ[slot];
+		record.itemName = itemNames[slot];
+		record.warmupTicks = warmupTicks[slot];
+		record.outcome = outcomes[slot];
+
+		// drop references, so names and uuids of old records can be collected
+		playerUids[slot] = null;
+		playerNames[slot] = null;
+		worldUids[slot] = null;
+		worldNames[slot] = null;
+		destinationNames[slot] = null;
+		destinationWorldUids[slot] = null;
+		itemNames[slot] = null;
+
+		sequences.setRelease(slot, tail + capacity);
+		tail++;
+		return true;
+	}
+
+}
@@ -0,0 +1,53 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import java.io.IOException;
+
+
+/**
+ * A destination for teleport usage records, written by the usage log writer thread.
+ * Sinks are only called from the writer thread, so they need not be thread safe.
+ */
+interface UsageSink
+{
+	/**
+	 * Write a usage record. The record is reused after this method returns.
+	 *
+	 * @param record the usage record
+	 * @throws IOException if the record could not be written
+	 */
+	void write(UsageRecord record) throws IOException;
+
+
+	/**
+	 * Flush records written since the last flush, called once after each batch
+	 *
+	 * @throws IOException if the records could not be flushed
+	 */
+	void flush() throws IOException;
+
+
+	/**
+	 * Release resources held by the sink, called when the writer thread stops
+	 *
+	 * @throws IOException if the sink could not be closed
+	 */
+	void close() throws IOException;
+
+}
@@ -0,0 +1,96 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+
+/**
+ * An open-addressing map from {@link UUID} keys to primitive {@code int} values.
+ * Each entry occupies two longs, a flag and an int in parallel arrays, with no boxing
+ * and no per-entry node objects.
+ */
+final class UuidIntMap extends AbstractUuidTable
+{
+	// assigned by the superclass constructor, so must not have an initializer
+	private int[] values;
+
+
+	/**
+	 * Get the value mapped to a key
+	 *
+	 * @param uuid         the key
+	 * @param defaultValue the value to return if the key is not present
+	 * @return the mapped value, or {@code defaultValue} if the key is not present
+	 */
+	int get(final UUID uuid, final int defaultValue)
+	{
+		int index = indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+		return (index < 0) ? defaultValue : values[index];
+	}
+
+
+	/**
+	 * Map a key to a value, replacing any existing value
+	 *
+	 * @param uuid  the key
+	 * @param value the value
+	 */
+	void put(final UUID uuid, final int value)
+	{
+		// insertion may resize the value array, so resolve the index before indexing the array
+		int index = insertionIndex(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+		values[index] = value;
+	}
+
+
+	/**
+	 * Remove a key only if it is currently mapped to the given value
+	 *
+	 * @param uuid  the key
+	 * @param value the expected value
+	 * @return {@code true} if the entry was removed, {@code false} if not
+	 */
+	boolean remove(final UUID uuid, final int value)
+	{
+		int index = indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+		if (index < 0 || values[index] != value)
+		{
+			return false;
+		}
+
+		removeAt(index);
+		return true;
+	}
+
+
+	@Override
+	void resizeValues(final int capacity)
+	{
+		values = (values == null) ? new int[capacity] : Arrays.copyOf(values, capacity);
+	}
+
+
+	@Override
+	void moveValue(final int from, final int to)
+	{
+		values[to] = values[from];
+	}
+
+}
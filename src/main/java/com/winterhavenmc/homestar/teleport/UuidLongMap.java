@@ -0,0 +1,101 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import java.util.Arrays;
+import java.util.UUID;
+import java.util.function.LongPredicate;
+
+
+/**
+ * An open-addressing map from {@link UUID} keys to primitive {@code long} values.
+ * Each entry occupies three longs and a flag in parallel arrays, with no boxing
+ * and no per-entry node objects.
+ */
+final class UuidLongMap extends AbstractUuidTable
+{
+	// assigned by the superclass constructor, so must not have an initializer
+	private long[] values;
+
+
+	/**
+	 * Get the value mapped to a key
+	 *
+	 * @param uuid         the key
+	 * @param defaultValue the value to return if the key is not present
+	 * @return the mapped value, or {@code defaultValue} if the key is not present
+	 */
+	long get(final UUID uuid, final long defaultValue)
+	{
+		int index = indexOf(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+		return (index < 0) ? defaultValue : values[index];
+	}
+
+
+	/**
+	 * Map a key to a value, replacing any existing value
+	 *
+	 * @param uuid  the key
+	 * @param value the value
+	 */
+	void put(final UUID uuid, final long value)
+	{
+		// insertion may resize the value array, so resolve the index before indexing the array
+		int index = insertionIndex(uuid.getMostSignificantBits(), uuid.getLeastSignificantBits());
+		values[index] = value;
+	}
+
+
+	/**
+	 * Remove all entries whose value matches a predicate
+	 *
+	 * @param predicate the predicate to test values against
+	 * @return the number of entries removed
+	 */
+	int removeIf(final LongPredicate predicate)
+	{
+		int removed = 0;
+
+		for (int i = 0; i < capacity(); i++)
+		{
+			// removal shifts a following entry back into this slot, so test the slot again
+			while (isUsed(i) && predicate.test(values[i]))
+			{
+				removeAt(i);
+				removed++;
+			}
+		}
+
+		return removed;
+	}
+
+
+	@Override
+	void resizeValues(final int capacity)
+	{
+		values = (values == null) ? new long[capacity] : Arrays.copyOf(values, capacity);
+	}
+
+
+	@Override
+	void moveValue(final int from, final int to)
+	{
+		values[to] = values[from];
+	}
+
+}
@@ -17,37 +17,93 @@
 
 package com.winterhavenmc.homestar.teleport;
 
+import com.winterhavenmc.homestar.PluginMain;
+
 import org.bukkit.entity.Player;
-import org.bukkit.plugin.java.JavaPlugin;
-import org.bukkit.scheduler.BukkitRunnable;
 
-import java.util.Set;
+import java.util.HashMap;
+import java.util.Map;
 import java.util.UUID;
-import java.util.concurrent.ConcurrentHashMap;
 
 
+/**
+ * Stores the scheduler handles and delayed teleport tasks of warming up players, and the players
+ * whose teleport was initiated within the configured interact delay. Optional callbacks are run when the
+ * first player begins warming up and when the last warmup ends.
+ */
 final class WarmupMap
 {
 	// reference to plugin main class
-	private final JavaPlugin plugin;
+	private final PluginMain plugin;
+
+	// scheduler that holds warmup and interact-delay entries
+	private final TeleportScheduler scheduler;
 
-	// HashMap containing player UUID as key and warmup task id as value
-	private final ConcurrentHashMap<UUID, Integer> warmupMap;
+	// map containing player UUID as key and warmup scheduler handle as value
+	private final UuidIntMap warmupMap;
 
-	// Map containing player uuid for teleport initiated
-	private final Set<UUID> teleportInitiated;
+	// map containing player UUID as key and delayed teleport task as value; a task stays here after its
+	// scheduler entry has fired, while it waits in a commit batch or the admission queue
+	private final Map<UUID, DelayedTeleportTask> warmupTasks = new HashMap<>();
 
+	// map containing player uuid for teleport initiated as key and interact-delay expiry handle as value
+	private final UuidIntMap teleportInitiated;
 
-	WarmupMap(final JavaPlugin plugin)
+	// callbacks run when the map becomes non-empty and when it becomes empty; may be null
+	private Runnable onActive;
+	private Runnable onIdle;
+
+
+	WarmupMap(final PluginMain plugin, final TeleportScheduler scheduler)
 	{
 		// set reference to main class
 		this.plugin = plugin;
 
-		// initialize warmup HashMap
-		warmupMap = new ConcurrentHashMap<>();
+		// set reference to teleport scheduler
+		this.scheduler = scheduler;
+
+		// initialize warmup map
+		warmupMap = new UuidIntMap();
+
+		// initialize teleport initiated map
+		teleportInitiated = new UuidIntMap();
+	}
+
+
+	/**
+	 * Set the callbacks run when the first player begins warming up and when the last warmup ends
+	 *
+	 * @param onActive the callback run when the warmup map becomes non-empty
+	 * @param onIdle   the callback run when the warmup map becomes empty
+	 */
+	void setActivityCallbacks(final Runnable onActive, final Runnable onIdle)
+	{
+		this.onActive = onActive;
+		this.onIdle = onIdle;
+	}
+
+
+	/**
+	 * Run the idle and then the active callback if any player is warming up
+	 */
+	void refreshActivity()
+	{
+		if (!warmupMap.isEmpty() && onActive != null && onIdle != null)
+		{
+			onIdle.run();
+			onActive.run();
+		}
+	}
+
 
-		// initialize teleport initiated set
-		teleportInitiated = ConcurrentHashMap.newKeySet();
+	/**
+	 * Check if no players are warming up
+	 *
+	 * @return {@code true} if the warmup map is empty, {@code false} if not
+	 */
+	boolean isEmpty()
+	{
+		return warmupMap.isEmpty();
 	}
 
 
@@ -58,7 +114,11 @@ final class WarmupMap
 	 */
 	void removePlayer(final Player player)
 	{
-		warmupMap.remove(player.getUniqueId());
+		warmupTasks.remove(player.getUniqueId());
+		if (warmupMap.remove(player.getUniqueId()) && warmupMap.isEmpty() && onIdle != null)
+		{
+			onIdle.run();
+		}
 	}
 
 
@@ -75,40 +135,72 @@ final class WarmupMap
 
 
 	/**
-	 * Insert player uuid and taskId into warmup hashmap.
+	 * Insert player uuid, scheduler handle and delayed teleport task into warmup hashmap.
 	 *
 	 * @param player the player to be inserted in the warmup map
-	 * @param taskId the taskId of the player's delayed teleport task
+	 * @param handle the scheduler handle of the player's delayed teleport task
+	 * @param task   the player's delayed teleport task
 	 */
-	void startPlayerWarmUp(final Player player, final Integer taskId)
+	void startPlayerWarmUp(final Player player, final int handle, final DelayedTeleportTask task)
 	{
-		warmupMap.put(player.getUniqueId(), taskId);
+		final UUID playerUid = player.getUniqueId();
+		final boolean wasIdle = warmupMap.isEmpty();
 
-		// insert player uuid into teleport initiated set
-		teleportInitiated.add(player.getUniqueId());
+		warmupMap.put(playerUid, handle);
+		warmupTasks.put(playerUid, task);
 
-		// create task to remove player uuid from tpi set after set amount of ticks (default: 2)
-		new BukkitRunnable()
+		// cancel any pending expiry from an earlier initiation, so it cannot end this one early
+		scheduler.cancel(teleportInitiated.get(playerUid, TeleportScheduler.NO_HANDLE));
+
+		// schedule removal of player uuid from tpi map after set amount of ticks (default: 2)
+		int expiryHandle = scheduler.schedule(plugin.settings.interactDelayTicks(),
+				() -> teleportInitiated.remove(playerUid));
+
+		// insert player uuid into teleport initiated map
+		teleportInitiated.put(playerUid, expiryHandle);
+
+		// run callback for first warmup
+		if (wasIdle && onActive != null)
 		{
-			@Override
-			public void run()
-			{
-				teleportInitiated.remove(player.getUniqueId());
-			}
-		}.runTaskLater(plugin, plugin.getConfig().getInt("interact-delay", 2));
+			onActive.run();
+		}
+	}
+
 
+	/**
+	 * Replace the scheduler handle for a warming up player
+	 *
+	 * @param player the warming up player
+	 * @param handle the new scheduler handle of the player's delayed teleport task
+	 */
+	void updateHandle(final Player player, final int handle)
+	{
+		warmupMap.put(player.getUniqueId(), handle);
+	}
+
+
+	/**
+	 * Get the scheduler handle for a warming up player
+	 *
+	 * @param player the player
+	 * @return the scheduler handle for the player, or {@link TeleportScheduler#NO_HANDLE} if player is not warming up
+	 */
+	int getHandle(final Player player)
+	{
+		return warmupMap.get(player.getUniqueId(), TeleportScheduler.NO_HANDLE);
 	}
 
 
 	/**
-	 * Get the task id for a warming up player
+	 * Get the delayed teleport task for a warming up player. The task is returned whether it is still
+	 * held by the scheduler, or has fallen due and is waiting to be committed.
 	 *
 	 * @param player the player
-	 * @return the task id for the player
+	 * @return the delayed teleport task for the player, or {@code null} if player is not warming up
 	 */
-	int getTaskId(final Player player)
+	DelayedTeleportTask getTask(final Player player)
 	{
-		return warmupMap.get(player.getUniqueId());
+		return warmupTasks.get(player.getUniqueId());
 	}
 
 
@@ -126,7 +218,7 @@ final class WarmupMap
 			return false;
 		}
 
-		return !teleportInitiated.contains(player.getUniqueId());
+		return teleportInitiated.containsKey(player.getUniqueId());
 	}
 
 }
@@ -0,0 +1,352 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import com.winterhavenmc.homestar.PluginMain;
+import com.winterhavenmc.homestar.util.HomeStarSettings;
+
+import org.bukkit.Effect;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+
+/**
+ * Draws particles around warming up players, with one repeating pulse per world instead of one
+ * task per player. Each pulse walks the players warming up in its world, skips players that no
+ * online player is close enough to see, and sends each point of the configured pattern only to the
+ * players in view range. Points are drawn from offset tables computed once for each pattern.
+ * <p>
+ * The number of particle packets sent in a tick is limited by the configured budget. When many
+ * players warm up near each other, a pulse draws every second, third or later point of the pattern,
+ * starting from a different point on each pulse, so the pattern thins out instead of going dark.
+ * <p>
+ * This class is not thread safe, and must only be accessed from the server main thread.
+ */
+final class WarmupParticleRenderer
+{
+	// ticks between pulses
+	private static final long PULSE_TICKS = 10L;
+
+	// square of the distance in blocks within which a player sees warmup particles
+	private static final double VIEW_DISTANCE_SQUARED = 10.0 * 10.0;
+
+	// height above player feet at which patterns are centered
+	private static final double CENTER_HEIGHT = 1.0;
+
+	// number of points in the ring and spiral patterns
+	private static final int RING_POINTS = 8;
+	private static final int SPIRAL_POINTS = 16;
+
+	// point offsets of each pattern, as consecutive x, y, z triples, indexed by pattern ordinal
+	private static final double[][] PATTERN_OFFSETS = createPatternTables();
+
+	private final PluginMain plugin;
+	private final TeleportScheduler scheduler;
+
+	// map of world uid to the pulse drawing particles in that world
+	private final Map<UUID, WorldPulse> worldPulses = new HashMap<>();
+
+	// map of player uid to the pulse the player is drawn by
+	private final Map<UUID, WorldPulse> playerPulses = new HashMap<>();
+
+	// particle packets sent in the current tick
+	private int packetsThisTick;
+
+	// reusable position buffers
+	private final Location source = new Location(null, 0, 0, 0);
+	private final Location target = new Location(null, 0, 0, 0);
+	private final Location point = new Location(null, 0, 0, 0);
+
+	// reusable buffers of the viewers of each warming up player in the current pulse
+	private final List<Player> viewers = new ArrayList<>();
+	private int[] viewerStarts = new int[16];
+	private int[] viewerCounts = new int[16];
+
+
+	/**
+	 * Class constructor
+	 *
+	 * @param plugin    reference to plugin main class
+	 * @param scheduler the scheduler that will run the world pulses
+	 */
+	WarmupParticleRenderer(final PluginMain plugin, final TeleportScheduler scheduler)
+	{
+		this.plugin = Objects.requireNonNull(plugin);
+		this.scheduler = Objects.requireNonNull(scheduler);
+		scheduler.onTickEnd(() -> packetsThisTick = 0);
+	}
+
+
+	/**
+	 * Start drawing particles around a player whose warmup is starting, if particle effects are enabled
+	 *
+	 * @param player the player
+	 */
+	void track(final Player player)
+	{
+		if (plugin.settings.particleEffects())
+		{
+			add(player, player.getWorld());
+		}
+	}
+
+
+	/**
+	 * Stop drawing particles around a player whose warmup has ended
+	 *
+	 * @param player the player
+	 */
+	void untrack(final Player player)
+	{
+		WorldPulse pulse = playerPulses.remove(player.getUniqueId());
+		if (pulse != null)
+		{
+			pulse.players.remove(player);
+		}
+	}
+
+
+	private void add(final Player player, final World world)
+	{
+		WorldPulse pulse = worldPulses.computeIfAbsent(world.getUID(), uid -> new WorldPulse(world));
+		if (playerPulses.putIfAbsent(player.getUniqueId(), pulse) == null)
+		{
+			pulse.players.add(player);
+		}
+	}
+
+
+	/**
+	 * Repeating pulse that draws particles around the warming up players in one world.
+	 * The pulse is cancelled when no player in its world is warming up.
+	 */
+	private final class WorldPulse implements Runnable
+	{
+		private final World world;
+		private final List<Player> players = new ArrayList<>();
+		private final int handle;
+		private int pulseCount;
+
+
+		private WorldPulse(final World world)
+		{
+			this.world = world;
+			this.handle = scheduler.schedule(PULSE_TICKS, PULSE_TICKS, this);
+		}
+
+
+		@Override
+		public void run()
+		{
+			removeDeparted();
+
+			if (players.isEmpty())
+			{
+				scheduler.cancel(handle);
+				worldPulses.remove(world.getUID());
+				return;
+			}
+
+			HomeStarSettings settings = plugin.settings;
+			double[] offsets = PATTERN_OFFSETS[settings.particlePattern().ordinal()];
+			int pointCount = offsets.length / 3;
+
+			// collect viewers of each warming up player, and count the packets a full pattern would need
+			List<Player> worldPlayers = world.getPlayers();
+			if (viewerCounts.length < players.size())
+			{
+				viewerStarts = new int[Math.max(players.size(), viewerCounts.length * 2)];
+				viewerCounts = new int[viewerStarts.length];
+			}
+			long demand = 0;
+			for (int i = 0; i < players.size(); i++)
+			{
+				viewerStarts[i] = viewers.size();
+				viewerCounts[i] = collectViewers(players.get(i), worldPlayers);
+				demand += (long) viewerCounts[i] * pointCount;
+			}
+
+			if (demand == 0)
+			{
+				viewers.clear();
+				return;
+			}
+
+			// thin out the pattern to stay within the packets left in this tick's budget
+			int budget = settings.particleBudget();
+			int remaining = budget - packetsThisTick;
+			if (remaining <= 0)
+			{
+				viewers.clear();
+				return;
+			}
+			int stride = (int) Math.min(pointCount, (demand + remaining - 1) / remaining);
+			int first = pulseCount % stride;
+
+			// start from a different player on each pulse, so players past the budget are drawn on a later pulse
+			int rotation = pulseCount++ % players.size();
+			for (int n = 0; n < players.size(); n++)
+			{
+				int i = (rotation + n) % players.size();
+				if (viewerCounts[i] > 0)
+				{
+					draw(players.get(i), offsets, first, stride, viewerStarts[i], viewerCounts[i], budget);
+				}
+			}
+			viewers.clear();
+		}
+
+
+		/**
+		 * Remove players no longer warming up, and move players who have changed world to the pulse of their new world
+		 */
+		private void removeDeparted()
+		{
+			for (int i = players.size() - 1; i >= 0; i--)
+			{
+				Player player = players.get(i);
+				if (!player.isOnline() || !plugin.teleportHandler.isWarmingUp(player))
+				{
+					players.remove(i);
+					playerPulses.remove(player.getUniqueId());
+				}
+				else if (player.getWorld() != world)
+				{
+					players.remove(i);
+					playerPulses.remove(player.getUniqueId());
+					add(player, player.getWorld());
+				}
+			}
+		}
+
+
+		/**
+		 * Add the players in view range of a warming up player to the viewer buffer
+		 *
+		 * @param player       the warming up player
+		 * @param worldPlayers the players in this world
+		 * @return the number of viewers added
+		 */
+		private int collectViewers(final Player player, final List<Player> worldPlayers)
+		{
+			player.getLocation(source);
+
+			int count = 0;
+			for (Player candidate : worldPlayers)
+			{
+				if ((candidate == player || candidate.canSee(player))
+						&& candidate.getLocation(target).distanceSquared(source) <= VIEW_DISTANCE_SQUARED)
+				{
+					viewers.add(candidate);
+					count++;
+				}
+			}
+			return count;
+		}
+
+
+		/**
+		 * Send every stride-th point of the pattern around a player to each of its viewers
+		 *
+		 * @param player      the warming up player
+		 * @param offsets     the pattern point offsets
+		 * @param first       the index of the first point drawn
+		 * @param stride      the step between points drawn
+		 * @param viewerIndex the index of the player's first viewer in the viewer buffer
+		 * @param viewerCount the number of viewers of the player
+		 * @param budget      the maximum number of packets sent in a tick
+		 */
+		private void draw(final Player player, final double[] offsets, final int first, final int stride,
+		                  final int viewerIndex, final int viewerCount, final int budget)
+		{
+			player.getLocation(source);
+
+			for (int p = first * 3; p < offsets.length && packetsThisTick + viewerCount <= budget; p += stride * 3)
+			{
+				point.setWorld(world);
+				point.setX(source.getX() + offsets[p]);
+				point.setY(source.getY() + CENTER_HEIGHT + offsets[p + 1]);
+				point.setZ(source.getZ() + offsets[p + 2]);
+
+				for (int v = viewerIndex; v < viewerIndex + viewerCount; v++)
+				{
+					viewers.get(v).playEffect(point, Effect.ENDER_SIGNAL, null);
+				}
+				packetsThisTick += viewerCount;
+			}
+		}
+	}
+
+
+	/**
+	 * Compute the point offsets of each particle pattern
+	 *
+	 * @return array of x, y, z offset triples, indexed by pattern ordinal
+	 */
+	private static double[][] createPatternTables()
+	{
+		HomeStarSettings.ParticlePattern[] patterns = HomeStarSettings.ParticlePattern.values();
+		double[][] tables = new double[patterns.length][];
+
+		for (HomeStarSettings.ParticlePattern pattern : patterns)
+		{
+			tables[pattern.ordinal()] = switch (pattern)
+			{
+				case SINGLE -> new double[] { 0.0, 0.0, 0.0 };
+				case RING -> createHelix(RING_POINTS, 0.75, 1, 0.0);
+				case SPIRAL -> createHelix(SPIRAL_POINTS, 0.6, 2, 1.5);
+			};
+		}
+
+		return tables;
+	}
+
+
+	/**
+	 * Compute points evenly spaced along a helix centered on the pattern center
+	 *
+	 * @param points the number of points
+	 * @param radius the helix radius in blocks
+	 * @param turns  the number of turns
+	 * @param height the helix height in blocks, or zero for a flat ring
+	 * @return array of x, y, z offset triples
+	 */
+	private static double[] createHelix(final int points, final double radius, final int turns, final double height)
+	{
+		double[] offsets = new double[points * 3];
+
+		for (int i = 0; i < points; i++)
+		{
+			double angle = 2.0 * Math.PI * turns * i / points;
+			offsets[i * 3] = radius * Math.cos(angle);
+			offsets[i * 3 + 1] = height * ((double) i / points - 0.5);
+			offsets[i * 3 + 2] = radius * Math.sin(angle);
+		}
+
+		return offsets;
+	}
+
+}
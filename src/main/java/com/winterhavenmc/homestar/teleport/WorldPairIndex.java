@@ -0,0 +1,148 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.plugin.Plugin;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.UUID;
+
+
+/**
+ * Index of nether and end worlds to their corresponding normal world, used to resolve the
+ * overworld spawn destination for players in another dimension with a single lookup.
+ * Worlds are paired by explicit mappings in the {@code world-pairs} config section, or by
+ * removing a {@code _nether} or {@code _the_end} suffix from the world name. If no normal world
+ * matches and exactly one normal world is loaded, that world is used. The index is rebuilt
+ * when worlds are loaded or unloaded, and when the configuration is reloaded.
+ */
+final class WorldPairIndex
+{
+	private static final String NETHER_SUFFIX = "_nether";
+	private static final String END_SUFFIX = "_the_end";
+
+	private final Plugin plugin;
+
+	// map of nether and end world uid to paired normal world uid
+	private Map<UUID, UUID> overworlds = Map.of();
+
+
+	/**
+	 * Class constructor. Builds the index from the currently loaded worlds.
+	 *
+	 * @param plugin reference to plugin main class
+	 */
+	WorldPairIndex(final Plugin plugin)
+	{
+		this.plugin = Objects.requireNonNull(plugin);
+		rebuild(null);
+	}
+
+
+	/**
+	 * Get the normal world paired with a world
+	 *
+	 * @param world the world of the player being teleported
+	 * @return the uid of the paired normal world, or the uid of the passed world if it has no pair
+	 */
+	UUID getOverworldUid(final World world)
+	{
+		return overworlds.getOrDefault(world.getUID(), world.getUID());
+	}
+
+
+	/**
+	 * Rebuild the index from the currently loaded worlds
+	 *
+	 * @param excludedWorld a world to leave out of the index, such as one being unloaded; may be null
+	 */
+	void rebuild(final World excludedWorld)
+	{
+		// map normal world names to uid
+		Map<String, UUID> normalWorlds = new HashMap<>();
+		for (World world : plugin.getServer().getWorlds())
+		{
+			if (world != excludedWorld && world.getEnvironment() == World.Environment.NORMAL)
+			{
+				normalWorlds.put(world.getName(), world.getUID());
+			}
+		}
+
+		// single normal world used when a dimension name does not match any normal world
+		UUID onlyNormalWorld = (normalWorlds.size() == 1)
+				? normalWorlds.values().iterator().next()
+				: null;
+
+		ConfigurationSection explicitPairs = plugin.getConfig().getConfigurationSection("world-pairs");
+
+		Map<UUID, UUID> index = new HashMap<>();
+		for (World world : plugin.getServer().getWorlds())
+		{
+			if (world == excludedWorld || world.getEnvironment() == World.Environment.NORMAL)
+			{
+				continue;
+			}
+
+			UUID overworldUid = null;
+
+			// check for explicit mapping in config
+			if (explicitPairs != null && explicitPairs.isString(world.getName()))
+			{
+				overworldUid = normalWorlds.get(explicitPairs.getString(world.getName()));
+			}
+
+			// match normal world by name minus nether/end suffix
+			if (overworldUid == null)
+			{
+				overworldUid = normalWorlds.get(stripDimensionSuffix(world.getName()));
+			}
+
+			// fall back to the only normal world, if there is exactly one
+			if (overworldUid == null)
+			{
+				overworldUid = onlyNormalWorld;
+			}
+
+			if (overworldUid != null)
+			{
+				index.put(world.getUID(), overworldUid);
+			}
+		}
+
+		overworlds = index;
+	}
+
+
+	private static String stripDimensionSuffix(final String worldName)
+	{
+		if (worldName.endsWith(NETHER_SUFFIX))
+		{
+			return worldName.substring(0, worldName.length() - NETHER_SUFFIX.length());
+		}
+		if (worldName.endsWith(END_SUFFIX))
+		{
+			return worldName.substring(0, worldName.length() - END_SUFFIX.length());
+		}
+		return worldName;
+	}
+
+}
@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.util;
+
+import org.bukkit.configuration.Configuration;
+
+import java.time.Duration;
+import java.util.Locale;
+
+import static com.winterhavenmc.library.messagebuilder.models.time.TimeUnit.SECONDS;
+
+
+/**
+ * An immutable snapshot of the plugin configuration settings, with values converted to the types
+ * and units used by the code that reads them. A snapshot is built when the plugin is enabled and
+ * when the configuration is reloaded, and is published through a volatile field of the plugin main
+ * class, so event handlers and teleport tasks never look up values in the configuration map.
+ *
+ * @param itemMaterial             the configured HomeStar item material name, or null if unset
+ * @param minimumDistanceSquared   the square of the minimum distance from destination, in blocks
+ * @param centerOnBlock            {@code true} if landing spots moved by the safe landing search are centered on their block
+ * @param safeLandingRadius        the distance in blocks searched for a safe landing spot
+ * @param cooldownMillis           the teleport cooldown in milliseconds
+ * @param persistCooldowns         {@code true} if cooldowns are kept in a file
+ * @param cooldownSweepTicks       the interval in ticks between sweeps of expired cooldowns
+ * @param warmup                   the teleport warmup
+ * @param warmupTicks              the teleport warmup in ticks
+ * @param interactDelayTicks       the ticks after a teleport is initiated during which interaction does not cancel it
+ * @param denialIntervalTicks      the ticks between repeats of the same denial message to a player, or zero for no limit
+ * @param destinationTimeoutTicks  the ticks a warmup may be extended while the destination chunk loads
+ * @param destinationTimeoutAction the action when the destination chunk is not loaded in time
+ * @param destinationLoadsPerTick  the number of destination chunks loaded per tick without an asynchronous chunk API
+ * @param commitBudget             the maximum number of teleports committed per tick, or zero for no limit
+ * @param particleEffects          {@code true} if particles are shown during warmup
+ * @param particlePattern          the pattern of particles shown around warming up players
+ * @param particleBudget           the maximum number of warmup particle packets sent per tick
+ * @param leftClick                {@code true} if items may be used with left click
+ * @param shiftClick               {@code true} if items must be used with shift click
+ * @param bedspawnFallback         {@code true} if players without a bed spawn are sent to world spawn
+ * @param removeFromInventory      when an item is taken from inventory
+ * @param allowInRecipes           {@code true} if items may be used in crafting recipes
+ * @param cancelOnDamage           {@code true} if damage cancels a warmup
+ * @param cancelOnMovement         {@code true} if movement cancels a warmup
+ * @param movementToleranceSquared the square of the distance in blocks a player may move during warmup
+ * @param ignoreRotation           {@code true} if head rotation is not counted as movement
+ * @param cancelOnInteraction      {@code true} if block interaction cancels a warmup
+ * @param fromNether               {@code true} if spawn teleports from the nether go to the paired overworld
+ * @param fromEnd                  {@code true} if spawn teleports from the end go to the paired overworld
+ * @param lightning                {@code true} if lightning strikes at the destination
+ * @param arrivalMergeTicks        the ticks during which arrival effects at the same destination are merged
+ * @param logUse                   {@code true} if item use is written to the log
+ * @param logBufferSize            the number of usage records held while waiting to be written
+ * @param logOverflow              what happens to a usage record when the buffer is full
+ * @param auditLog                 {@code true} if teleport outcomes are written to the audit log
+ * @param auditSegmentBytes        the size in bytes at which an audit log segment is closed
+ * @param auditRetainedSegments    the number of closed audit log segments kept
+ */
+public record HomeStarSettings(String itemMaterial,
+                               double minimumDistanceSquared,
+                               boolean centerOnBlock,
+                               int safeLandingRadius,
+                               long cooldownMillis,
+                               boolean persistCooldowns,
+                               long cooldownSweepTicks,
+                               Duration warmup,
+                               long warmupTicks,
+                               long interactDelayTicks,
+                               long denialIntervalTicks,
+                               long destinationTimeoutTicks,
+                               TimeoutAction destinationTimeoutAction,
+                               int destinationLoadsPerTick,
+                               int commitBudget,
+                               boolean particleEffects,
+                               ParticlePattern particlePattern,
+                               int particleBudget,
+                               boolean leftClick,
+                               boolean shiftClick,
+                               boolean bedspawnFallback,
+                               RemoveMode removeFromInventory,
+                               boolean allowInRecipes,
+                               boolean cancelOnDamage,
+                               boolean cancelOnMovement,
+                               double movementToleranceSquared,
+                               boolean ignoreRotation,
+                               boolean cancelOnInteraction,
+                               boolean fromNether,
+                               boolean fromEnd,
+                               boolean lightning,
+                               long arrivalMergeTicks,
+                               boolean logUse,
+                               int logBufferSize,
+                               LogOverflow logOverflow,
+                               boolean auditLog,
+                               long auditSegmentBytes,
+                               int auditRetainedSegments)
+{
+	/**
+	 * When a HomeStar item is taken from inventory
+	 */
+	public enum RemoveMode
+	{
+		ON_USE,
+		ON_SUCCESS,
+		NEVER;
+
+		private static RemoveMode parse(final String value)
+		{
+			if (value == null)
+			{
+				return ON_SUCCESS;
+			}
+
+			return switch (value.toLowerCase(Locale.ROOT))
+			{
+				case "on-use" -> ON_USE;
+				case "never" -> NEVER;
+				default -> ON_SUCCESS;
+			};
+		}
+	}
+
+
+	/**
+	 * Action taken when a destination chunk is not loaded before the destination timeout
+	 */
+	public enum TimeoutAction
+	{
+		TELEPORT,
+		CANCEL;
+
+		private static TimeoutAction parse(final String value)
+		{
+			return "cancel".equalsIgnoreCase(value) ? CANCEL : TELEPORT;
+		}
+	}
+
+
+	/**
+	 * Pattern of particles shown around a warming up player
+	 */
+	public enum ParticlePattern
+	{
+		SINGLE,
+		RING,
+		SPIRAL;
+
+		private static ParticlePattern parse(final String value)
+		{
+			if (value == null)
+			{
+				return SINGLE;
+			}
+
+			return switch (value.toLowerCase(Locale.ROOT))
+			{
+				case "ring" -> RING;
+				case "spiral" -> SPIRAL;
+				default -> SINGLE;
+			};
+		}
+	}
+
+
+	/**
+	 * What happens to a usage record when the usage log buffer is full
+	 */
+	public enum LogOverflow
+	{
+		DROP,
+		SPILL;
+
+		private static LogOverflow parse(final String value)
+		{
+			return "spill".equalsIgnoreCase(value) ? SPILL : DROP;
+		}
+	}
+
+
+	/**
+	 * Create a settings snapshot from a configuration
+	 *
+	 * @param config the plugin configuration
+	 * @return the settings snapshot
+	 */
+	public static HomeStarSettings from(final Configuration config)
+	{
+		int minimumDistance = config.getInt("minimum-distance");
+		double movementTolerance = Math.max(0.0, config.getDouble("movement-tolerance"));
+		long warmupSeconds = config.getLong("teleport-warmup");
+
+		return new HomeStarSettings(
+				config.getString("item-material"),
+				(double) minimumDistance * minimumDistance,
+				config.getBoolean("center-on-block", true),
+				Math.max(0, config.getInt("safe-landing-radius", 0)),
+				config.getInt("teleport-cooldown") * 1000L,
+				config.getBoolean("persist-cooldowns"),
+				SECONDS.toTicks(Math.max(1, config.getInt("cooldown-sweep-interval", 60))),
+				Duration.ofSeconds(warmupSeconds),
+				SECONDS.toTicks(warmupSeconds),
+				config.getInt("interact-delay", 2),
+				Math.max(0, config.getInt("denial-message-interval", 20)),
+				SECONDS.toTicks(config.getLong("destination-timeout", 5)),
+				TimeoutAction.parse(config.getString("destination-timeout-action")),
+				Math.max(1, config.getInt("destination-loads-per-tick", 1)),
+				Math.max(0, config.getInt("teleport-commit-budget", 0)),
+				config.getBoolean("particle-effects"),
+				ParticlePattern.parse(config.getString("particle-pattern")),
+				Math.max(1, config.getInt("particle-budget", 200)),
+				config.getBoolean("left-click"),
+				config.getBoolean("shift-click"),
+				config.getBoolean("bedspawn-fallback"),
+				RemoveMode.parse(config.getString("remove-from-inventory")),
+				config.getBoolean("allow-in-recipes"),
+				config.getBoolean("cancel-on-damage"),
+				config.getBoolean("cancel-on-movement"),
+				movementTolerance * movementTolerance,
+				config.getBoolean("ignore-rotation", true),
+				config.getBoolean("cancel-on-interaction"),
+				config.getBoolean("from-nether"),
+				config.getBoolean("from-end"),
+				config.getBoolean("lightning"),
+				Math.max(0, config.getInt("arrival-merge-window", 20)),
+				config.getBoolean("log-use"),
+				Math.max(2, config.getInt("log-buffer-size", 1024)),
+				LogOverflow.parse(config.getString("log-overflow")),
+				config.getBoolean("audit-log", true),
+				Math.max(1, config.getInt("audit-segment-size", 8)) * 1024L * 1024L,
+				Math.max(1, config.getInt("audit-retained-segments", 16)));
+	}
+
+}
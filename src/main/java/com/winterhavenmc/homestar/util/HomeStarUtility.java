@@ -22,8 +22,27 @@ import com.winterhavenmc.library.messagebuilder.models.keys.ConstantKey;
 import com.winterhavenmc.library.messagebuilder.models.keys.ItemKey;
 import com.winterhavenmc.library.messagebuilder.models.keys.ValidConstantKey;
 import com.winterhavenmc.library.messagebuilder.models.keys.ValidItemKey;
+import org.bukkit.Keyed;
+import org.bukkit.Material;
+import org.bukkit.NamespacedKey;
 import org.bukkit.inventory.ItemStack;
+import org.bukkit.inventory.Recipe;
+import org.bukkit.inventory.RecipeChoice;
+import org.bukkit.inventory.ShapedRecipe;
+import org.bukkit.inventory.ShapelessRecipe;
+import org.bukkit.inventory.meta.ItemMeta;
+import org.bukkit.persistence.PersistentDataType;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.logging.Level;
 
 
 /**
@@ -36,6 +55,18 @@ public final class HomeStarUtility
 	public static final String ITEM_KEY_STRING = "HOMESTAR";
 	private final PluginMain plugin;
 
+	// key stamped on the persistent data container of HomeStar items created by this plugin
+	private final NamespacedKey itemKey;
+
+	// file recording every material HomeStar items have been made of, kept when the configured material changes
+	private final Path materialsFile;
+
+	// lookup table indexed by material ordinal, true for materials a HomeStar item may be made of
+	private boolean[] itemMaterials;
+
+	// cache of recipe keys to whether the recipe has an ingredient choice a HomeStar item could satisfy
+	private final Map<NamespacedKey, Boolean> recipeCache = new HashMap<>();
+
 
 	/**
 	 * class constructor
@@ -45,11 +76,82 @@ public final class HomeStarUtility
 	public HomeStarUtility(final PluginMain plugin)
 	{
 		this.plugin = plugin;
+		this.itemKey = new NamespacedKey(plugin, "item");
+		this.materialsFile = plugin.getDataFolder().toPath().resolve("item-materials.txt");
+		this.itemMaterials = createMaterialTable();
+	}
+
+
+	/**
+	 * Check if an item stack is a HomeStar item. Items of a material no HomeStar item has been made of
+	 * are rejected with a single table lookup. Other items are recognized by the key stamped on their
+	 * persistent data container, and items created before the key was stamped by the message builder.
+	 *
+	 * @param itemStack the item stack to check
+	 * @return {@code true} if the item stack is a HomeStar item, {@code false} if not
+	 */
+	public boolean isHomeStar(final ItemStack itemStack)
+	{
+		if (itemStack == null || !itemMaterials[itemStack.getType().ordinal()] || !itemStack.hasItemMeta())
+		{
+			return false;
+		}
+
+		ItemMeta itemMeta = itemStack.getItemMeta();
+		if (itemMeta != null && itemMeta.getPersistentDataContainer().has(itemKey, PersistentDataType.BYTE))
+		{
+			return true;
+		}
+
+		return plugin.messageBuilder.items().isItem(itemStack);
+	}
+
+
+	/**
+	 * Check if a material is one a HomeStar item may be made of
+	 *
+	 * @param material the material to check
+	 * @return {@code true} if a HomeStar item may be made of the material, {@code false} if not
+	 */
+	public boolean isHomeStarMaterial(final Material material)
+	{
+		return material != null && itemMaterials[material.ordinal()];
+	}
+
+
+	/**
+	 * Check if a recipe could accept a HomeStar item as an ingredient. Shaped and shapeless recipes
+	 * are checked once against the HomeStar material table, and the answer is cached by recipe key.
+	 * Recipes whose ingredients are not known in advance are assumed to accept a HomeStar item.
+	 *
+	 * @param recipe the recipe to check
+	 * @return {@code true} if the recipe could accept a HomeStar item, {@code false} if it never can
+	 */
+	public boolean mayAcceptHomeStar(final Recipe recipe)
+	{
+		if (!(recipe instanceof Keyed keyed))
+		{
+			return acceptsHomeStar(recipe);
+		}
+
+		return recipeCache.computeIfAbsent(keyed.getKey(), key -> acceptsHomeStar(recipe));
+	}
+
+
+	/**
+	 * Rebuild the HomeStar material table from reloaded configuration and language files.
+	 * Materials of the previous configuration are kept, so existing HomeStar items are still recognized.
+	 */
+	public void reload()
+	{
+		itemMaterials = createMaterialTable();
+		recipeCache.clear();
 	}
 
 
 	/**
-	 * Create a HomeStar item stack of given quantity, with custom display name and lore
+	 * Create a HomeStar item stack of given quantity, with custom display name and lore,
+	 * stamped with the HomeStar item key
 	 *
 	 * @param passedQuantity number of HomeStar items in newly created stack
 	 * @return ItemStack of HomeStar items
@@ -65,6 +167,13 @@ public final class HomeStarUtility
 			ItemStack returnItem = itemStack.get();
 			quantity = Math.min(quantity, returnItem.getMaxStackSize());
 			returnItem.setAmount(quantity);
+
+			ItemMeta itemMeta = returnItem.getItemMeta();
+			if (itemMeta != null)
+			{
+				itemMeta.getPersistentDataContainer().set(itemKey, PersistentDataType.BYTE, (byte) 1);
+				returnItem.setItemMeta(itemMeta);
+			}
 			return returnItem;
 		}
 		else
@@ -73,4 +182,189 @@ public final class HomeStarUtility
 		}
 	}
 
+
+	/**
+	 * Check the ingredient choices of a recipe against the HomeStar material table
+	 *
+	 * @param recipe the recipe to check
+	 * @return {@code true} if any ingredient choice could be satisfied by a HomeStar item, {@code false} if not
+	 */
+	private boolean acceptsHomeStar(final Recipe recipe)
+	{
+		Collection<RecipeChoice> choices;
+		if (recipe instanceof ShapedRecipe shapedRecipe)
+		{
+			choices = shapedRecipe.getChoiceMap().values();
+		}
+		else if (recipe instanceof ShapelessRecipe shapelessRecipe)
+		{
+			choices = shapelessRecipe.getChoiceList();
+		}
+		else
+		{
+			// ingredients of complex recipes are decided by the server when the grid changes
+			return true;
+		}
+
+		for (RecipeChoice choice : choices)
+		{
+			if (acceptsHomeStar(choice))
+			{
+				return true;
+			}
+		}
+
+		return false;
+	}
+
+
+	/**
+	 * Check if a single ingredient choice could be satisfied by a HomeStar item
+	 *
+	 * @param choice the ingredient choice, or null for an empty slot of a shaped recipe
+	 * @return {@code true} if the choice could be satisfied by a HomeStar item, {@code false} if not
+	 */
+	private boolean acceptsHomeStar(final RecipeChoice choice)
+	{
+		if (choice == null)
+		{
+			return false;
+		}
+
+		if (choice instanceof RecipeChoice.MaterialChoice materialChoice)
+		{
+			for (Material material : materialChoice.getChoices())
+			{
+				if (isHomeStarMaterial(material))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		if (choice instanceof RecipeChoice.ExactChoice exactChoice)
+		{
+			for (ItemStack itemStack : exactChoice.getChoices())
+			{
+				if (isHomeStarMaterial(itemStack.getType()))
+				{
+					return true;
+				}
+			}
+			return false;
+		}
+
+		// unknown choice type, assume it may accept a HomeStar item
+		return true;
+	}
+
+
+	/**
+	 * Create lookup table of materials a HomeStar item may be made of, from the item definition
+	 * in the language file, the item-material setting in config, and the materials recorded in the
+	 * materials file. Configured materials not yet recorded are added to the file.
+	 *
+	 * @return boolean array indexed by material ordinal
+	 */
+	private boolean[] createMaterialTable()
+	{
+		boolean[] table = new boolean[Material.values().length];
+		List<String> recorded = readRecordedMaterials();
+
+		for (String materialName : recorded)
+		{
+			Material material = Material.matchMaterial(materialName);
+			if (material != null)
+			{
+				table[material.ordinal()] = true;
+			}
+		}
+
+		List<Material> configured = new ArrayList<>(2);
+		ItemStack itemStack = plugin.messageBuilder.items()
+				.createItem(ItemKey.of(ITEM_KEY_STRING).isValid().orElseThrow()).orElse(null);
+		if (itemStack != null)
+		{
+			configured.add(itemStack.getType());
+		}
+
+		String configMaterialName = plugin.settings.itemMaterial();
+		Material configMaterial = (configMaterialName == null) ? null : Material.matchMaterial(configMaterialName);
+		if (configMaterial != null)
+		{
+			configured.add(configMaterial);
+		}
+
+		boolean changed = false;
+		for (Material material : configured)
+		{
+			if (!table[material.ordinal()])
+			{
+				table[material.ordinal()] = true;
+				recorded.add(material.name());
+				changed = true;
+			}
+		}
+
+		if (changed)
+		{
+			writeRecordedMaterials(recorded);
+		}
+
+		return table;
+	}
+
+
+	/**
+	 * Read the names of the materials HomeStar items have been made of
+	 *
+	 * @return modifiable list of material names, empty if the file does not exist or could not be read
+	 */
+	private List<String> readRecordedMaterials()
+	{
+		if (!Files.exists(materialsFile))
+		{
+			return new ArrayList<>();
+		}
+
+		try
+		{
+			List<String> recorded = new ArrayList<>();
+			for (String line : Files.readAllLines(materialsFile))
+			{
+				if (!line.isBlank())
+				{
+					recorded.add(line.strip());
+				}
+			}
+			return recorded;
+		}
+		catch (IOException e)
+		{
+			plugin.getLogger().log(Level.WARNING, "Could not read HomeStar item materials file.", e);
+			return new ArrayList<>();
+		}
+	}
+
+
+	/**
+	 * Write the names of the materials HomeStar items have been made of
+	 *
+	 * @param recorded the material names
+	 */
+	private void writeRecordedMaterials(final List<String> recorded)
+	{
+		try
+		{
+			Files.createDirectories(materialsFile.getParent());
+			Files.write(materialsFile, recorded);
+		}
+		catch (IOException e)
+		{
+			plugin.getLogger().log(Level.WARNING, "Could not write HomeStar item materials file. "
+					+ "Items of a previous material may not be recognized after the material is changed again.", e);
+		}
+	}
+
 }
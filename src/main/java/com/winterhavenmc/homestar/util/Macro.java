@@ -30,6 +30,13 @@ public enum Macro
 	PLUGIN,
 	SETTING,
 	URL,
+	COUNT,
+	TOTAL,
+	MAX_DURATION,
+	TIME,
+	ORIGIN,
+	OUTCOME,
+	MATERIAL,
 
 	NUMBER_LOCALE,
 	DATE_LOCALE,
@@ -25,6 +25,7 @@ public enum MessageId
 	COMMAND_HELP_DESTROY,
 	COMMAND_HELP_GIVE,
 	COMMAND_HELP_HELP,
+	COMMAND_HELP_HISTORY,
 	COMMAND_HELP_RELOAD,
 	COMMAND_HELP_STATUS,
 	COMMAND_INVALID_HELP,
@@ -37,6 +38,7 @@ public enum MessageId
 	COMMAND_FAIL_GIVE_INVENTORY_FULL,
 	COMMAND_FAIL_PLAYER_NOT_FOUND,
 	COMMAND_FAIL_GIVE_QUANTITY_INVALID,
+	COMMAND_FAIL_HISTORY_PAGE_INVALID,
 	COMMAND_FAIL_INVALID_COMMAND,
 
 	COMMAND_SUCCESS_DESTROY,
@@ -45,6 +47,10 @@ public enum MessageId
 	COMMAND_SUCCESS_GIVE_TARGET,
 	COMMAND_SUCCESS_RELOAD,
 
+	COMMAND_HISTORY_HEADER,
+	COMMAND_HISTORY_ENTRY,
+	COMMAND_HISTORY_EMPTY,
+
 	COMMAND_STATUS_HEADER,
 	COMMAND_STATUS_PLUGIN_VERSION,
 	COMMAND_STATUS_LANGUAGE,
@@ -63,6 +69,15 @@ public enum MessageId
 	COMMAND_STATUS_ALLOW_IN_RECIPES,
 	COMMAND_STATUS_DISPLAY_LIGHTNING,
 	COMMAND_STATUS_ENABLED_WORLDS,
+	COMMAND_STATUS_COOLDOWN_SWEEP,
+	COMMAND_STATUS_CHUNK_TICKETS,
+	COMMAND_STATUS_ADMISSION,
+	COMMAND_STATUS_ADMISSION_WAIT,
+	COMMAND_STATUS_SPAWN_CACHE,
+	COMMAND_STATUS_ARRIVAL_EFFECTS,
+	COMMAND_STATUS_DENIAL_THROTTLE,
+	COMMAND_STATUS_USAGE_LOG,
+	COMMAND_STATUS_AUDIT_LOG,
 	COMMAND_STATUS_FOOTER,
 
 	COMMAND_FAIL_RELOAD_PERMISSION,
@@ -70,11 +85,14 @@ public enum MessageId
 	COMMAND_FAIL_DESTROY_PERMISSION,
 	COMMAND_FAIL_GIVE_PERMISSION,
 	COMMAND_FAIL_HELP_PERMISSION,
+	COMMAND_FAIL_HISTORY_PERMISSION,
 
 	TELEPORT_CANCELLED_DAMAGE,
 	TELEPORT_CANCELLED_INTERACTION,
 	TELEPORT_CANCELLED_MOVEMENT,
 	TELEPORT_CANCELLED_NO_ITEM,
+	TELEPORT_CANCELLED_DESTINATION_TIMEOUT,
+	TELEPORT_QUEUED,
 	TELEPORT_FAIL_MIN_DISTANCE,
 	TELEPORT_CANCELLED_NO_BEDSPAWN,
 	TELEPORT_FAIL_PERMISSION,
@@ -6,25 +6,44 @@ public enum ConfigSetting {
     LANGUAGE("language", "en-US"),
     ENABLED_WORLDS("enabled-worlds", "[]"),
     DISABLED_WORLDS("disabled-worlds", "[disabled_world1, disabled_world2]"),
+    WORLD_PAIRS("world-pairs", "{}"),
     ITEM_MATERIAL("item-material", "NETHER_STAR"),
     MINIMUM_DISTANCE("minimum-distance", "10"),
     CENTER_ON_BLOCK("center-on-block", "true"),
+    SAFE_LANDING_RADIUS("safe-landing-radius", "0"),
     TELEPORT_COOLDOWN("teleport-cooldown", "60"),
+    PERSIST_COOLDOWNS("persist-cooldowns", "false"),
+    COOLDOWN_SWEEP_INTERVAL("cooldown-sweep-interval", "60"),
+    DENIAL_MESSAGE_INTERVAL("denial-message-interval", "20"),
     TELEPORT_WARMUP("teleport-warmup", "5"),
+    DESTINATION_TIMEOUT("destination-timeout", "5"),
+    DESTINATION_TIMEOUT_ACTION("destination-timeout-action", "teleport"),
+    DESTINATION_LOADS_PER_TICK("destination-loads-per-tick", "1"),
+    TELEPORT_COMMIT_BUDGET("teleport-commit-budget", "0"),
     SOUND_EFFECTS("sound-effects", "true"),
     PARTICLE_EFFECTS("particle-effects", "true"),
+    PARTICLE_PATTERN("particle-pattern", "single"),
+    PARTICLE_BUDGET("particle-budget", "200"),
     LEFT_CLICK("left-click","false"),
     SHIFT_CLICK("shift-click", "true"),
     REMOVE_FROM_INVENTORY("remove-from-inventory", "on-success"),
     ALLOW_IN_RECIPES("allow-in-recipes", "false"),
     CANCEL_ON_DAMAGE("cancel-on-damage", "false"),
     CANCEL_ON_MOVEMENT("cancel-on-movement", "false"),
+    MOVEMENT_TOLERANCE("movement-tolerance", "0"),
+    IGNORE_ROTATION("ignore-rotation", "true"),
     CANCEL_ON_INTERACTION("cancel-on-interaction", "false"),
     MAX_GIVE_AMOUNT("max-give-amount", "-1"),
     FROM_NETHER("from-nether", "true"),
     FROM_END("from-end", "true"),
     LIGHTNING("lightning", "false"),
-    LOG_USE("log-use", "true");
+    ARRIVAL_MERGE_WINDOW("arrival-merge-window", "20"),
+    LOG_USE("log-use", "true"),
+    LOG_BUFFER_SIZE("log-buffer-size", "1024"),
+    LOG_OVERFLOW("log-overflow", "drop"),
+    AUDIT_LOG("audit-log", "true"),
+    AUDIT_SEGMENT_SIZE("audit-segment-size", "8"),
+    AUDIT_RETAINED_SEGMENTS("audit-retained-segments", "16");
 
 
     private final String key;
@@ -0,0 +1,258 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class AuditLogTest
+{
+	// smallest segment the log allows, in records
+	private static final int SEGMENT_RECORDS = 256;
+	private static final long SEGMENT_BYTES = SEGMENT_RECORDS * 128L;
+
+	private static final UUID PLAYER_A = new UUID(1L, 1L);
+	private static final UUID PLAYER_B = new UUID(2L, 2L);
+	private static final UUID WORLD = new UUID(3L, 3L);
+
+	@TempDir
+	Path tempDir;
+
+	private AuditLog auditLog;
+
+
+	@AfterEach
+	void tearDown() throws IOException
+	{
+		if (auditLog != null)
+		{
+			auditLog.close();
+		}
+	}
+
+
+	private AuditLog open(final int retainedSegments)
+	{
+		auditLog = new AuditLog(Logger.getAnonymousLogger(), tempDir, SEGMENT_BYTES, retainedSegments);
+		auditLog.open();
+		return auditLog;
+	}
+
+
+	/**
+	 * Write an outcome record, using the sequence number as its time and block x coordinate
+	 */
+	private static void write(final AuditLog log, final UUID playerUid, final long sequence) throws IOException
+	{
+		UsageRecord record = new UsageRecord();
+		record.timeMillis = sequence;
+		record.playerUid = playerUid;
+		record.worldUid = WORLD;
+		record.blockX = (int) sequence;
+		record.blockY = 64;
+		record.blockZ = -(int) sequence;
+		record.destinationWorldUid = WORLD;
+		record.itemName = "NETHER_STAR";
+		record.warmupTicks = 20L;
+		record.outcome = TeleportOutcome.SUCCESS;
+		log.write(record);
+	}
+
+
+	/**
+	 * Read every page of a player's history, newest first
+	 */
+	private static List<Long> readAll(final AuditLog log, final UUID playerUid) throws IOException
+	{
+		List<Long> times = new ArrayList<>();
+		AuditPage first = log.query(playerUid, 1);
+		for (int page = 1; page <= first.pageCount(); page++)
+		{
+			AuditPage result = log.query(playerUid, page);
+			assertEquals(first.total(), result.total());
+			assertTrue(result.entries().size() <= AuditLog.PAGE_SIZE);
+			for (AuditEntry entry : result.entries())
+			{
+				assertEquals(playerUid, entry.playerUid());
+				assertEquals(entry.timeMillis(), entry.blockX());
+				times.add(entry.timeMillis());
+			}
+		}
+		assertEquals(first.total(), times.size());
+		return times;
+	}
+
+
+	private static List<Long> newestFirst(final long fromInclusive, final long toExclusive, final long step)
+	{
+		List<Long> times = new ArrayList<>();
+		for (long n = toExclusive - 1; n >= fromInclusive; n--)
+		{
+			if ((n - fromInclusive) % step == 0)
+			{
+				times.add(n);
+			}
+		}
+		return times;
+	}
+
+
+	private long countFiles(final String suffix) throws IOException
+	{
+		try (Stream<Path> files = Files.list(tempDir))
+		{
+			return files.filter(file -> file.getFileName().toString().endsWith(suffix)).count();
+		}
+	}
+
+
+	@Test
+	void activeSegmentIsPagedNewestFirst() throws IOException
+	{
+		AuditLog log = open(4);
+		for (long n = 0; n < 25; n++)
+		{
+			write(log, PLAYER_A, n);
+		}
+
+		AuditPage first = log.query(PLAYER_A, 1);
+		assertEquals(25, first.total());
+		assertEquals(3, first.pageCount());
+
+		AuditEntry entry = first.entries().get(0);
+		assertEquals(24L, entry.timeMillis());
+		assertEquals(WORLD, entry.worldUid());
+		assertEquals(64, entry.blockY());
+		assertEquals(-24, entry.blockZ());
+		assertEquals("NETHER_STAR", entry.item());
+		assertEquals(20L, entry.warmupTicks());
+		assertEquals(TeleportOutcome.SUCCESS, entry.outcome());
+
+		assertEquals(newestFirst(0, 25, 1), readAll(log, PLAYER_A));
+	}
+
+
+	@Test
+	void recordsWithoutOutcomeAreNotWritten() throws IOException
+	{
+		AuditLog log = open(4);
+		UsageRecord record = new UsageRecord();
+		record.playerUid = PLAYER_A;
+		log.write(record);
+
+		assertEquals(0, log.query(PLAYER_A, 1).total());
+	}
+
+
+	@Test
+	void unknownPlayerAndPageOutOfRangeAreEmpty() throws IOException
+	{
+		AuditLog log = open(4);
+		for (long n = 0; n < 5; n++)
+		{
+			write(log, PLAYER_A, n);
+		}
+
+		AuditPage unknown = log.query(PLAYER_B, 1);
+		assertEquals(0, unknown.total());
+		assertTrue(unknown.entries().isEmpty());
+
+		AuditPage outOfRange = log.query(PLAYER_A, 2);
+		assertEquals(5, outOfRange.total());
+		assertEquals(1, outOfRange.pageCount());
+		assertTrue(outOfRange.entries().isEmpty());
+	}
+
+
+	@Test
+	void pagesSpanRotatedSegments() throws IOException
+	{
+		AuditLog log = open(8);
+
+		// alternate two players, so each segment holds half of each player's records
+		final long count = SEGMENT_RECORDS * 3L + 50;
+		for (long n = 0; n < count; n++)
+		{
+			write(log, (n % 2 == 0) ? PLAYER_A : PLAYER_B, n);
+		}
+
+		assertEquals(3, countFiles(".idx"));
+		assertEquals(newestFirst(0, count, 2), readAll(log, PLAYER_A));
+		assertEquals(newestFirst(1, count, 2), readAll(log, PLAYER_B));
+	}
+
+
+	@Test
+	void oldestSegmentsAreRemovedBeyondRetention() throws IOException
+	{
+		AuditLog log = open(2);
+
+		final long count = SEGMENT_RECORDS * 5L + 10;
+		for (long n = 0; n < count; n++)
+		{
+			write(log, PLAYER_A, n);
+		}
+
+		assertEquals(2, countFiles(".idx"));
+
+		// two closed segments and the active segment remain
+		long oldest = count - 10 - SEGMENT_RECORDS * 2L;
+		assertEquals(newestFirst(oldest, count, 1), readAll(log, PLAYER_A));
+	}
+
+
+	@Test
+	void reopenResumesActiveSegment() throws IOException
+	{
+		AuditLog log = open(4);
+		final long firstCount = SEGMENT_RECORDS + 30;
+		for (long n = 0; n < firstCount; n++)
+		{
+			write(log, PLAYER_A, n);
+		}
+		log.close();
+
+		log = open(4);
+		assertEquals(newestFirst(0, firstCount, 1), readAll(log, PLAYER_A));
+
+		// records written after reopening follow the resumed records, and fill the resumed segment before rotating
+		final long count = SEGMENT_RECORDS * 2L + 5;
+		for (long n = firstCount; n < count; n++)
+		{
+			write(log, PLAYER_A, n);
+		}
+
+		assertEquals(2, countFiles(".idx"));
+		assertEquals(newestFirst(0, count, 1), readAll(log, PLAYER_A));
+	}
+
+}
@@ -0,0 +1,117 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Handler;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class ConsoleUsageSinkTest
+{
+	private final List<String> lines = new ArrayList<>();
+	private ConsoleUsageSink sink;
+
+
+	@BeforeEach
+	void setUp()
+	{
+		Logger logger = Logger.getAnonymousLogger();
+		logger.setUseParentHandlers(false);
+		logger.addHandler(new Handler()
+		{
+			@Override
+			public void publish(final LogRecord record)
+			{
+				lines.add(record.getMessage());
+			}
+
+			@Override
+			public void flush() { }
+
+			@Override
+			public void close() { }
+		});
+		sink = new ConsoleUsageSink(logger);
+	}
+
+
+	private static UsageRecord useRecord()
+	{
+		UsageRecord record = new UsageRecord();
+		record.playerName = "Alice";
+		record.itemName = "HomeStar";
+		record.worldName = "world";
+		record.blockX = 10;
+		record.blockY = 64;
+		record.blockZ = -5;
+		record.destinationName = "Home";
+		return record;
+	}
+
+
+	@Test
+	void defaultMessageTextIsUsedWhenLanguageFileHasNone()
+	{
+		sink.write(useRecord());
+
+		assertEquals(List.of("Alice used a HomeStar in world."), lines);
+	}
+
+
+	@Test
+	void messageMacrosAreReplacedAndFormattingRemoved()
+	{
+		sink.setMessageText("<aqua>{PLAYER}</aqua> a utilise {ITEM} ({PLAYER.LOCATION.WORLD} "
+				+ "{PLAYER.LOCATION.X} {PLAYER.LOCATION.Y} {PLAYER.LOCATION.Z}) vers <#00ffff>{DESTINATION}");
+		sink.write(useRecord());
+
+		assertEquals(List.of("Alice a utilise HomeStar (world 10 64 -5) vers Home"), lines);
+	}
+
+
+	@Test
+	void unknownMacrosAndUnclosedBracesAreCopied()
+	{
+		sink.setMessageText("{PLAYER} {UNKNOWN} 1 < 2 {ITEM.DISPLAY_NAME");
+		sink.write(useRecord());
+
+		assertEquals(List.of("Alice {UNKNOWN} 1 < 2 {ITEM.DISPLAY_NAME"), lines);
+	}
+
+
+	@Test
+	void outcomeRecordsAreNotWritten()
+	{
+		UsageRecord record = useRecord();
+		record.outcome = TeleportOutcome.SUCCESS;
+
+		sink.write(record);
+
+		assertTrue(lines.isEmpty());
+	}
+
+}
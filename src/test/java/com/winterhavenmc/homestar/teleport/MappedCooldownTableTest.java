@@ -0,0 +1,212 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class MappedCooldownTableTest
+{
+	private static final long NOW = 1_000_000L;
+
+	// slots examined for any key; matches MappedCooldownTable.MAX_PROBE
+	private static final int PROBE_WINDOW = 32;
+
+	@TempDir
+	Path tempDir;
+
+
+	/**
+	 * Get the least significant bits of a uuid whose halves have the given exclusive or,
+	 * so all keys made with the same group hash to the same home slot
+	 */
+	private static long lsbOf(final long group, final long msb)
+	{
+		return msb ^ group;
+	}
+
+
+	@Test
+	void getReturnsStoredExpireTime() throws IOException
+	{
+		MappedCooldownTable table = MappedCooldownTable.open(tempDir.resolve("cooldowns.dat"));
+
+		assertTrue(table.put(1L, 2L, NOW + 500L, NOW));
+
+		assertEquals(NOW + 500L, table.get(1L, 2L));
+		assertEquals(0L, table.get(3L, 4L));
+	}
+
+
+	@Test
+	void putReplacesExistingEntry() throws IOException
+	{
+		MappedCooldownTable table = MappedCooldownTable.open(tempDir.resolve("cooldowns.dat"));
+
+		assertTrue(table.put(1L, 2L, NOW + 500L, NOW));
+		assertTrue(table.put(1L, 2L, NOW + 900L, NOW));
+
+		assertEquals(NOW + 900L, table.get(1L, 2L));
+	}
+
+
+	@Test
+	void collidingKeysAreStoredInProbeWindow() throws IOException
+	{
+		MappedCooldownTable table = MappedCooldownTable.open(tempDir.resolve("cooldowns.dat"));
+
+		for (long msb = 1; msb <= PROBE_WINDOW; msb++)
+		{
+			assertTrue(table.put(msb, lsbOf(99L, msb), NOW + msb, NOW));
+		}
+
+		for (long msb = 1; msb <= PROBE_WINDOW; msb++)
+		{
+			assertEquals(NOW + msb, table.get(msb, lsbOf(99L, msb)));
+		}
+	}
+
+
+	@Test
+	void putFailsWhenProbeWindowHoldsOnlyUnexpiredEntries() throws IOException
+	{
+		MappedCooldownTable table = MappedCooldownTable.open(tempDir.resolve("cooldowns.dat"));
+
+		for (long msb = 1; msb <= PROBE_WINDOW; msb++)
+		{
+			assertTrue(table.put(msb, lsbOf(99L, msb), NOW + 1000L, NOW));
+		}
+
+		assertFalse(table.put(100L, lsbOf(99L, 100L), NOW + 1000L, NOW));
+		assertEquals(0L, table.get(100L, lsbOf(99L, 100L)));
+	}
+
+
+	@Test
+	void expiredEntryIsReplacedWhenProbeWindowIsFull() throws IOException
+	{
+		MappedCooldownTable table = MappedCooldownTable.open(tempDir.resolve("cooldowns.dat"));
+
+		for (long msb = 1; msb <= PROBE_WINDOW; msb++)
+		{
+			// one entry has already expired
+			long expire = (msb == 7L) ? NOW - 1L : NOW + 1000L;
+			assertTrue(table.put(msb, lsbOf(99L, msb), expire, NOW));
+		}
+
+		assertTrue(table.put(100L, lsbOf(99L, 100L), NOW + 1000L, NOW));
+
+		assertEquals(NOW + 1000L, table.get(100L, lsbOf(99L, 100L)));
+		assertEquals(0L, table.get(7L, lsbOf(99L, 7L)));
+		assertEquals(NOW + 1000L, table.get(8L, lsbOf(99L, 8L)));
+	}
+
+
+	@Test
+	void entriesSurviveReopen() throws IOException
+	{
+		Path path = tempDir.resolve("cooldowns.dat");
+		MappedCooldownTable table = MappedCooldownTable.open(path);
+		table.put(1L, 2L, NOW + 500L, NOW);
+		table.put(3L, 4L, NOW + 700L, NOW);
+		table.flush();
+
+		MappedCooldownTable reopened = MappedCooldownTable.open(path);
+
+		assertEquals(NOW + 500L, reopened.get(1L, 2L));
+		assertEquals(NOW + 700L, reopened.get(3L, 4L));
+	}
+
+
+	@Test
+	void invalidFileIsReplacedWithEmptyTable() throws IOException
+	{
+		Path path = tempDir.resolve("cooldowns.dat");
+		Files.write(path, new byte[] { 1, 2, 3, 4, 5, 6, 7, 8, 9, 10 });
+
+		MappedCooldownTable table = MappedCooldownTable.open(path);
+
+		assertEquals(0L, table.get(1L, 2L));
+		assertTrue(table.put(1L, 2L, NOW + 500L, NOW));
+		assertEquals(NOW + 500L, table.get(1L, 2L));
+	}
+
+
+	@Test
+	void halfWrittenSlotIsTreatedAsFree() throws IOException
+	{
+		Path path = tempDir.resolve("cooldowns.dat");
+		MappedCooldownTable table = MappedCooldownTable.open(path);
+		table.put(11L, lsbOf(99L, 11L), NOW + 500L, NOW);
+		table.put(12L, lsbOf(99L, 12L), NOW + 600L, NOW);
+		table.flush();
+
+		// simulate a crash after the expire time of the first entry was rewritten, but before its check word was set
+		overwriteExpireTime(path, 11L, NOW + 9999L);
+
+		MappedCooldownTable reopened = MappedCooldownTable.open(path);
+
+		assertEquals(0L, reopened.get(11L, lsbOf(99L, 11L)));
+
+		// the torn slot does not end the probe chain for a following colliding entry
+		assertEquals(NOW + 600L, reopened.get(12L, lsbOf(99L, 12L)));
+
+		// the torn slot is reused by the next write
+		assertTrue(reopened.put(11L, lsbOf(99L, 11L), NOW + 800L, NOW));
+		assertEquals(NOW + 800L, reopened.get(11L, lsbOf(99L, 11L)));
+		assertEquals(NOW + 600L, reopened.get(12L, lsbOf(99L, 12L)));
+	}
+
+
+	/**
+	 * Overwrite the expire time of the slot holding a key, leaving its check word unchanged
+	 */
+	private static void overwriteExpireTime(final Path path, final long msb, final long expireMillis) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE))
+		{
+			ByteBuffer slot = ByteBuffer.allocate(32);
+
+			// slots follow a 64 byte header, and hold msb, lsb, expire time and check word
+			for (long offset = 64; offset < channel.size(); offset += 32)
+			{
+				slot.clear();
+				channel.read(slot, offset);
+				if (slot.getLong(0) == msb)
+				{
+					channel.write(ByteBuffer.allocate(8).putLong(0, expireMillis), offset + 16);
+					return;
+				}
+			}
+		}
+		throw new AssertionError("slot not found");
+	}
+
+}
@@ -0,0 +1,169 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class UsageRingTest
+{
+	private static UsageRecord record(final long n)
+	{
+		UsageRecord record = new UsageRecord();
+		record.timeMillis = n;
+		record.playerUid = new UUID(n, n);
+		record.playerName = "player" + n;
+		record.blockX = (int) n;
+		record.warmupTicks = n * 2;
+		record.outcome = (n % 2 == 0) ? TeleportOutcome.SUCCESS : null;
+		return record;
+	}
+
+
+	@Test
+	void capacityIsRoundedUpToPowerOfTwo()
+	{
+		assertEquals(4, new UsageRing(1).capacity());
+		assertEquals(8, new UsageRing(8).capacity());
+		assertEquals(16, new UsageRing(9).capacity());
+	}
+
+
+	@Test
+	void pollReturnsRecordsInOfferOrder()
+	{
+		UsageRing ring = new UsageRing(4);
+		UsageRecord polled = new UsageRecord();
+
+		assertTrue(ring.offer(record(1)));
+		assertTrue(ring.offer(record(2)));
+
+		assertTrue(ring.poll(polled));
+		assertEquals(1L, polled.timeMillis);
+		assertEquals("player1", polled.playerName);
+		assertNull(polled.outcome);
+
+		assertTrue(ring.poll(polled));
+		assertEquals(2L, polled.timeMillis);
+		assertEquals(TeleportOutcome.SUCCESS, polled.outcome);
+
+		assertFalse(ring.poll(polled));
+	}
+
+
+	@Test
+	void offerFailsWhenFullUntilRecordIsPolled()
+	{
+		UsageRing ring = new UsageRing(4);
+		for (int n = 0; n < 4; n++)
+		{
+			assertTrue(ring.offer(record(n)));
+		}
+
+		assertFalse(ring.offer(record(4)));
+
+		assertTrue(ring.poll(new UsageRecord()));
+		assertTrue(ring.offer(record(4)));
+	}
+
+
+	@Test
+	void recordsSurviveManyWrapsOfTheRing()
+	{
+		UsageRing ring = new UsageRing(4);
+		UsageRecord polled = new UsageRecord();
+		long next = 0;
+		long expected = 0;
+
+		// keep the ring partly full, so head and tail wrap at different slots
+		for (int round = 0; round < 1000; round++)
+		{
+			for (int i = 0; i < 3 && ring.offer(record(next)); i++)
+			{
+				next++;
+			}
+			for (int i = 0; i < 2 && ring.poll(polled); i++)
+			{
+				assertEquals(expected, polled.timeMillis);
+				assertEquals(expected * 2, polled.warmupTicks);
+				assertEquals(new UUID(expected, expected), polled.playerUid);
+				expected++;
+			}
+		}
+
+		while (ring.poll(polled))
+		{
+			assertEquals(expected++, polled.timeMillis);
+		}
+		assertEquals(next, expected);
+	}
+
+
+	@Test
+	void consumerThreadSeesEveryRecordInOrder() throws InterruptedException
+	{
+		final int count = 200_000;
+		UsageRing ring = new UsageRing(64);
+		AtomicReference<String> failure = new AtomicReference<>();
+
+		Thread consumer = new Thread(() ->
+		{
+			UsageRecord polled = new UsageRecord();
+			long expected = 0;
+			while (expected < count)
+			{
+				if (!ring.poll(polled))
+				{
+					Thread.onSpinWait();
+					continue;
+				}
+				if (polled.timeMillis != expected || polled.blockX != (int) expected
+						|| !("player" + expected).equals(polled.playerName))
+				{
+					failure.compareAndSet(null, "expected record " + expected + " but was " + polled.timeMillis);
+					return;
+				}
+				expected++;
+			}
+		});
+		consumer.start();
+
+		UsageRecord offered = new UsageRecord();
+		for (long n = 0; n < count && consumer.isAlive(); n++)
+		{
+			offered.copyFrom(record(n));
+			while (!ring.offer(offered) && consumer.isAlive())
+			{
+				Thread.onSpinWait();
+			}
+		}
+
+		consumer.join(10_000L);
+		assertFalse(consumer.isAlive(), "consumer did not finish");
+		assertNull(failure.get());
+	}
+
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class UuidIntMapTest
+{
+	private static UUID collidingKey(final long n)
+	{
+		return new UUID(n, n ^ 42L);
+	}
+
+
+	@Test
+	void putAndGet()
+	{
+		UuidIntMap map = new UuidIntMap();
+		UUID key = UUID.randomUUID();
+
+		map.put(key, 5);
+
+		assertEquals(5, map.get(key, -1));
+		assertEquals(-1, map.get(UUID.randomUUID(), -1));
+	}
+
+
+	@Test
+	void conditionalRemoveOnlyRemovesMatchingValue()
+	{
+		UuidIntMap map = new UuidIntMap();
+		UUID key = UUID.randomUUID();
+		map.put(key, 5);
+
+		assertFalse(map.remove(key, 6));
+		assertTrue(map.containsKey(key));
+
+		assertTrue(map.remove(key, 5));
+		assertTrue(map.isEmpty());
+	}
+
+
+	@Test
+	void conditionalRemoveShiftsCollidingEntriesBack()
+	{
+		UuidIntMap map = new UuidIntMap();
+		for (int n = 0; n < 8; n++)
+		{
+			map.put(collidingKey(n), n);
+		}
+
+		assertTrue(map.remove(collidingKey(2), 2));
+		assertTrue(map.remove(collidingKey(0), 0));
+
+		for (int n = 0; n < 8; n++)
+		{
+			assertEquals(n == 0 || n == 2 ? -1 : n, map.get(collidingKey(n), -1));
+		}
+	}
+
+
+	@Test
+	void valuesSurviveResize()
+	{
+		UuidIntMap map = new UuidIntMap();
+		for (int n = 0; n < 500; n++)
+		{
+			map.put(collidingKey(n), n);
+		}
+
+		assertEquals(500, map.size());
+		for (int n = 0; n < 500; n++)
+		{
+			assertEquals(n, map.get(collidingKey(n), -1));
+		}
+	}
+
+}
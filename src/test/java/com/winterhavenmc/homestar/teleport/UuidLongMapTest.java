@@ -0,0 +1,208 @@
+/*
+ * Copyright (c) 2022 Tim Savage.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, version 3.
+ *
+ * This program is distributed in the hope that it will be useful, but
+ * WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE. See the GNU
+ * General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program. If not, see <http://www.gnu.org/licenses/>.
+ *
+ */
+
+package com.winterhavenmc.homestar.teleport;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+
+class UuidLongMapTest
+{
+	/**
+	 * Create a key whose halves have the same exclusive or as every other key in its group,
+	 * so all keys in a group hash to the same home slot
+	 */
+	private static UUID collidingKey(final long group, final long n)
+	{
+		return new UUID(n, n ^ group);
+	}
+
+
+	@Test
+	void putReplacesExistingValue()
+	{
+		UuidLongMap map = new UuidLongMap();
+		UUID key = UUID.randomUUID();
+
+		map.put(key, 1L);
+		map.put(key, 2L);
+
+		assertEquals(2L, map.get(key, -1L));
+		assertEquals(1, map.size());
+	}
+
+
+	@Test
+	void getReturnsDefaultForMissingKey()
+	{
+		UuidLongMap map = new UuidLongMap();
+		map.put(UUID.randomUUID(), 1L);
+
+		assertEquals(-1L, map.get(UUID.randomUUID(), -1L));
+		assertFalse(map.containsKey(UUID.randomUUID()));
+	}
+
+
+	@Test
+	void collidingKeysAreAllRetrievable()
+	{
+		UuidLongMap map = new UuidLongMap();
+		for (long n = 0; n < 10; n++)
+		{
+			map.put(collidingKey(7L, n), n * 100);
+		}
+
+		for (long n = 0; n < 10; n++)
+		{
+			assertEquals(n * 100, map.get(collidingKey(7L, n), -1L));
+		}
+		assertEquals(10, map.size());
+	}
+
+
+	@Test
+	void removeShiftsFollowingCollidingEntriesBack()
+	{
+		UuidLongMap map = new UuidLongMap();
+		for (long n = 0; n < 6; n++)
+		{
+			map.put(collidingKey(3L, n), n);
+		}
+
+		// remove from the front, middle and end of the probe chain
+		assertTrue(map.remove(collidingKey(3L, 0)));
+		assertTrue(map.remove(collidingKey(3L, 3)));
+		assertTrue(map.remove(collidingKey(3L, 5)));
+		assertFalse(map.remove(collidingKey(3L, 5)));
+
+		assertEquals(3, map.size());
+		assertEquals(1L, map.get(collidingKey(3L, 1), -1L));
+		assertEquals(2L, map.get(collidingKey(3L, 2), -1L));
+		assertEquals(4L, map.get(collidingKey(3L, 4), -1L));
+		assertFalse(map.containsKey(collidingKey(3L, 0)));
+
+		// removed slots are reusable
+		map.put(collidingKey(3L, 0), 10L);
+		assertEquals(10L, map.get(collidingKey(3L, 0), -1L));
+		assertEquals(4, map.size());
+	}
+
+
+	@Test
+	void growsPastInitialCapacity()
+	{
+		UuidLongMap map = new UuidLongMap();
+		for (long n = 0; n < 1000; n++)
+		{
+			map.put(collidingKey(n % 7, n), n);
+		}
+
+		assertEquals(1000, map.size());
+		for (long n = 0; n < 1000; n++)
+		{
+			assertEquals(n, map.get(collidingKey(n % 7, n), -1L));
+		}
+	}
+
+
+	@Test
+	void removeIfRemovesEveryMatchingEntry()
+	{
+		UuidLongMap map = new UuidLongMap();
+		for (long n = 0; n < 200; n++)
+		{
+			map.put(collidingKey(n % 3, n), n);
+		}
+
+		assertEquals(100, map.removeIf(value -> value % 2 == 0));
+
+		assertEquals(100, map.size());
+		for (long n = 0; n < 200; n++)
+		{
+			assertEquals(n % 2 != 0, map.containsKey(collidingKey(n % 3, n)));
+		}
+	}
+
+
+	@Test
+	void clearRemovesAllEntries()
+	{
+		UuidLongMap map = new UuidLongMap();
+		map.put(UUID.randomUUID(), 1L);
+		map.put(UUID.randomUUID(), 2L);
+
+		map.clear();
+
+		assertTrue(map.isEmpty());
+	}
+
+
+	@Test
+	void matchesHashMapUnderRandomOperations()
+	{
+		Random random = new Random(20240611L);
+
+		// a small key space in few collision groups gives long probe chains that wrap the table
+		for (int round = 0; round < 50; round++)
+		{
+			UuidLongMap map = new UuidLongMap();
+			Map<UUID, Long> expected = new HashMap<>();
+
+			for (int step = 0; step < 400; step++)
+			{
+				UUID key = collidingKey(random.nextInt(4), random.nextInt(24));
+				int operation = random.nextInt(10);
+
+				if (operation < 5)
+				{
+					long value = random.nextInt(1000);
+					map.put(key, value);
+					expected.put(key, value);
+				}
+				else if (operation < 9)
+				{
+					assertEquals(expected.remove(key) != null, map.remove(key));
+				}
+				else
+				{
+					long threshold = random.nextInt(1000);
+					int removed = map.removeIf(value -> value < threshold);
+					int expectedRemoved = expected.size();
+					expected.values().removeIf(value -> value < threshold);
+					expectedRemoved -= expected.size();
+					assertEquals(expectedRemoved, removed, "removeIf count");
+				}
+
+				assertEquals(expected.size(), map.size(), "size");
+				for (Map.Entry<UUID, Long> entry : expected.entrySet())
+				{
+					assertEquals(entry.getValue(), (Long) map.get(entry.getKey(), -1L), "value of " + entry.getKey());
+				}
+			}
+		}
+	}
+
+}